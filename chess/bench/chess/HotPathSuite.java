@@ -0,0 +1,192 @@
+package chess;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * HotPathSuite is the JMH benchmark suite of the code the game runs
+ * most: move generation, the AI search at fixed depths, saving and
+ * restoring a game and listing a player's pieces. Every benchmark runs
+ * in its own forked JVM after a warmup, and main adds the GC profiler
+ * so each one reports the bytes it allocates per operation as well as
+ * its throughput.
+ *
+ * The suite lives in the bench source folder of the Bench module,
+ * which depends on the Chess module and the jmh library, so the game
+ * itself does not need JMH.
+ *
+ * Usage: java -cp &lt;Bench classpath&gt; chess.HotPathSuite [filter]
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class HotPathSuite {
+    private static final String[] FENS = {
+        Fen.START,
+        "r1bqkb1r/pppp1ppp/2n2n2/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4",
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+    };
+    private Position[] positions;
+    private final MoveList moves = new MoveList();
+    private final ByteBuffer buffer = ByteBuffer.allocate(Storage.POSITION_BYTES);
+    private final ByteBuffer saved = ByteBuffer.allocate(Storage.POSITION_BYTES);
+    private final Position restored = new Position();
+    private Player full;
+
+    /**
+     * The search of the fixed depth benchmarks, kept apart so only
+     * they are run for every depth.
+     */
+    @State(Scope.Thread)
+    public static class SearchState {
+        /**
+         * Depth every search goes to.
+         */
+        @Param({"2", "3", "4"})
+        public int depth;
+        // a small table, since it is cleared before every search
+        private final TranspositionTable table =
+                new TranspositionTable(1, TranspositionTable.Replacement.AGE_AND_DEPTH);
+        private final Search search = new Search(table);
+        private final Position position = Fen.parse(FENS[1]);
+    }
+
+    /**
+     * main runs the benchmarks whose name matches the filter with the
+     * GC profiler.
+     *
+     * @param args the name filter, every benchmark if missing
+     * @throws RunnerException if a benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        String filter = args.length > 0 ? args[0] : "";
+        new Runner(new OptionsBuilder()
+                .include(HotPathSuite.class.getSimpleName() + ".*" + filter)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    /**
+     * Reads the benchmark positions and the saved game, and sets up a
+     * player with a full set of pieces.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        positions = new Position[FENS.length];
+        for (int i = 0; i < FENS.length; i++) {
+            positions[i] = Fen.parse(FENS[i]);
+        }
+        Storage.writePosition(positions[2], saved);
+        full = new Player("p1", "WHITE");
+        for (int x = 0; x < Board.SIZE; x++) {
+            full.addPiece(new Pawn(x, 1, full, "pawn" + x));
+        }
+        full.addPiece(new Rook(0, 0, full, "rook0"));
+        full.addPiece(new Knight(1, 0, full, "knight0"));
+        full.addPiece(new Bishop(2, 0, full, "bishop0"));
+        full.addPiece(new Queen(3, 0, full, "queen"));
+        full.addPiece(new King(4, 0, full, "king"));
+        full.addPiece(new Bishop(5, 0, full, "bishop1"));
+        full.addPiece(new Knight(6, 0, full, "knight1"));
+        full.addPiece(new Rook(7, 0, full, "rook1"));
+    }
+
+    /**
+     * Generates the pseudo-legal moves of every benchmark position.
+     *
+     * @param blackhole takes the move lists
+     */
+    @Benchmark
+    public void generateMoves(Blackhole blackhole) {
+        for (Position position : positions) {
+            moves.clear();
+            position.generateMoves(moves);
+            blackhole.consume(moves.size());
+        }
+    }
+
+    /**
+     * Generates the legal moves of every benchmark position.
+     *
+     * @param blackhole takes the move lists
+     */
+    @Benchmark
+    public void generateLegalMoves(Blackhole blackhole) {
+        for (Position position : positions) {
+            moves.clear();
+            position.generateLegalMoves(moves);
+            blackhole.consume(moves.size());
+        }
+    }
+
+    /**
+     * Searches a middlegame position to a fixed depth with an empty
+     * table, as the AI does for a move.
+     *
+     * @param state the search and its depth
+     * @return the best move
+     */
+    @Benchmark
+    public int search(SearchState state) {
+        state.table.clear();
+        return state.search.search(state.position, state.depth, Long.MAX_VALUE, Long.MAX_VALUE).getBestMove();
+    }
+
+    /**
+     * Saves a position to the binary game format.
+     *
+     * @return the number of bytes written
+     */
+    @Benchmark
+    public int storageSave() {
+        buffer.clear();
+        Storage.writePosition(positions[2], buffer);
+        return buffer.position();
+    }
+
+    /**
+     * Restores a position from the binary game format.
+     *
+     * @return the hash of the restored position
+     */
+    @Benchmark
+    public long storageRestore() {
+        saved.clear();
+        Storage.readPosition(saved, restored);
+        return restored.getHash();
+    }
+
+    /**
+     * Lists the pieces of a player with a full set.
+     *
+     * @return the number of pieces
+     */
+    @Benchmark
+    public int playerGetPieces() {
+        return full.getPieces().size();
+    }
+}
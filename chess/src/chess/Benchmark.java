@@ -0,0 +1,99 @@
+package chess;
+
+/**
+ * Benchmark measures how the parallel search scales. It runs a
+ * ParallelSearch to a fixed depth with 1, 2, 4 and so on up to the
+ * given number of threads and reports the time each run takes to
+ * reach the depth, the speedup against one thread, and the nodes per
+ * second of all the threads together.
+ *
+ * The speedup is taken from the time to depth and not from the nodes
+ * per second, since many nodes of the helper threads are cheap cutoffs
+ * from the shared table, so the nodes per second rise with the threads
+ * even on a single core. The thread counts stop at the number of
+ * processors for the same reason.
+ *
+ * Usage: java chess.Benchmark [threads] [depth]
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public class Benchmark {
+    //
+    // Moves played from the start to reach the benchmark positions,
+    // as x1, y1, x2, y2
+    //
+    private static final int[][][] OPENINGS = {
+        {},
+        {{4, 1, 4, 3}, {4, 6, 4, 4}, {6, 0, 5, 2}, {1, 7, 2, 5}, {5, 0, 1, 4}},
+        {{3, 1, 3, 3}, {6, 7, 5, 5}, {2, 1, 2, 3}, {4, 6, 4, 5}, {1, 0, 2, 2}, {5, 7, 1, 3}},
+    };
+
+    /**
+     * Depth every benchmark position is searched to by default.
+     */
+    public static final int DEFAULT_DEPTH = 8;
+
+    /**
+     * main runs the thread scaling benchmark.
+     *
+     * @param args the largest thread count and the depth to search
+     */
+    public static void main(String[] args) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int maxThreads = Math.min(processors, args.length > 0 ? Integer.parseInt(args[0]) : processors);
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_DEPTH;
+        System.out.println("threads   time ms  speedup    nodes/s");
+        long base = 0;
+        for (int threads = 1; threads <= maxThreads; threads = nextCount(threads, maxThreads)) {
+            long[] run = timeToDepth(threads, depth);
+            long millis = run[0];
+            if (threads == 1) {
+                base = millis;
+            }
+            System.out.printf("%7d %9d %8.2f %10.0f%n", threads, millis, (double) base / millis,
+                    run[1] * 1000.0 / millis);
+        }
+    }
+
+    //
+    // Searches every benchmark position to the depth with the given
+    // number of threads and returns the total time in milliseconds and
+    // the nodes of every thread
+    //
+    private static long[] timeToDepth(int threads, int depth) {
+        TranspositionTable table = new TranspositionTable();
+        ParallelSearch search = new ParallelSearch(threads, table);
+        long time = 0;
+        long nodes = 0;
+        for (int[][] opening : OPENINGS) {
+            table.clear();
+            long start = System.nanoTime();
+            nodes += search.search(position(opening), depth, Long.MAX_VALUE, Long.MAX_VALUE).getNodes();
+            time += (System.nanoTime() - start) / 1000000;
+        }
+        search.shutdown();
+        return new long[] {Math.max(1, time), nodes};
+    }
+
+    //
+    // Plays the moves of an opening from the start
+    //
+    private static Position position(int[][] opening) {
+        Position position = Position.startPosition();
+        for (int[] move : opening) {
+            position.movePiece(move[0], move[1], move[2], move[3]);
+        }
+        return position;
+    }
+
+    //
+    // Doubles the thread count, ending exactly on the largest count
+    //
+    private static int nextCount(int threads, int maxThreads) {
+        if (threads == maxThreads) {
+            return maxThreads + 1;
+        }
+        return Math.min(threads * 2, maxThreads);
+    }
+}
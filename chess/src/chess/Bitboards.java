@@ -0,0 +1,163 @@
+package chess;
+
+/**
+ * Bitboards holds the precomputed attack tables used for move generation.
+ * A bitboard is a long where bit n is set when square n of the Position
+ * is part of the set.
+ *
+ * Knights, kings and pawns are answered with a single table lookup.
+ * Rooks, bishops and queens use precomputed rays that are cut at the
+ * first blocker found with a bit scan.
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public final class Bitboards {
+    /**
+     * Squares attacked by a knight on each square.
+     */
+    public static final long[] KNIGHT_ATTACKS = new long[Position.SQUARES];
+    /**
+     * Squares attacked by a king on each square.
+     */
+    public static final long[] KING_ATTACKS = new long[Position.SQUARES];
+    /**
+     * Squares attacked by a pawn of each color on each square.
+     */
+    public static final long[][] PAWN_ATTACKS = new long[2][Position.SQUARES];
+    /**
+     * Squares strictly between two squares on a line, empty when the
+     * squares do not share a row, column or diagonal.
+     */
+    public static final long[][] BETWEEN = new long[Position.SQUARES][Position.SQUARES];
+    /**
+     * The whole row, column or diagonal through two squares, empty when
+     * they do not share one.
+     */
+    public static final long[][] LINE = new long[Position.SQUARES][Position.SQUARES];
+    private static final int NORTH = 0;
+    private static final int NORTH_EAST = 1;
+    private static final int EAST = 2;
+    private static final int NORTH_WEST = 3;
+    private static final int SOUTH = 4;
+    private static final int SOUTH_WEST = 5;
+    private static final int WEST = 6;
+    private static final int SOUTH_EAST = 7;
+    private static final int[] DIR_X = {0, 1, 1, -1, 0, -1, -1, 1};
+    private static final int[] DIR_Y = {1, 1, 0, 1, -1, -1, 0, -1};
+    private static final long[][] RAYS = new long[8][Position.SQUARES];
+
+    static {
+        int[][] knightJumps = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+        for (int sq = 0; sq < Position.SQUARES; sq++) {
+            int x = sq & 7;
+            int y = sq >>> 3;
+            for (int[] jump : knightJumps) {
+                KNIGHT_ATTACKS[sq] |= bit(x + jump[0], y + jump[1]);
+            }
+            for (int dir = 0; dir < 8; dir++) {
+                KING_ATTACKS[sq] |= bit(x + DIR_X[dir], y + DIR_Y[dir]);
+                for (int i = 1; i < 8; i++) {
+                    RAYS[dir][sq] |= bit(x + i * DIR_X[dir], y + i * DIR_Y[dir]);
+                }
+            }
+            PAWN_ATTACKS[Piece.WHITE][sq] = bit(x - 1, y + 1) | bit(x + 1, y + 1);
+            PAWN_ATTACKS[Piece.BLACK][sq] = bit(x - 1, y - 1) | bit(x + 1, y - 1);
+        }
+        for (int sq = 0; sq < Position.SQUARES; sq++) {
+            for (int dir = 0; dir < 8; dir++) {
+                // directions four apart point opposite ways
+                long line = RAYS[dir][sq] | RAYS[dir ^ 4][sq] | bit(sq);
+                long ray = RAYS[dir][sq];
+                while (ray != 0) {
+                    int to = Long.numberOfTrailingZeros(ray);
+                    ray &= ray - 1;
+                    BETWEEN[sq][to] = RAYS[dir][sq] & ~RAYS[dir][to] & ~bit(to);
+                    LINE[sq][to] = line;
+                }
+            }
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    /**
+     * Gets the bitboard with only the given square set.
+     *
+     * @param square the square number
+     * @return the bitboard of the square
+     */
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    /**
+     * Gets the squares attacked by a rook on the given square.
+     *
+     * @param square the square of the rook
+     * @param occupied every occupied square on the board
+     * @return the attacked squares, including the first blocker of each line
+     */
+    public static long rookAttacks(int square, long occupied) {
+        return positiveRay(NORTH, square, occupied) | positiveRay(EAST, square, occupied)
+                | negativeRay(SOUTH, square, occupied) | negativeRay(WEST, square, occupied);
+    }
+
+    /**
+     * Gets the squares attacked by a bishop on the given square.
+     *
+     * @param square the square of the bishop
+     * @param occupied every occupied square on the board
+     * @return the attacked squares, including the first blocker of each line
+     */
+    public static long bishopAttacks(int square, long occupied) {
+        return positiveRay(NORTH_EAST, square, occupied) | positiveRay(NORTH_WEST, square, occupied)
+                | negativeRay(SOUTH_WEST, square, occupied) | negativeRay(SOUTH_EAST, square, occupied);
+    }
+
+    /**
+     * Gets the squares attacked by a queen on the given square.
+     *
+     * @param square the square of the queen
+     * @param occupied every occupied square on the board
+     * @return the attacked squares, including the first blocker of each line
+     */
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    //
+    // Ray towards higher square numbers, cut after its lowest blocker
+    //
+    private static long positiveRay(int dir, int square, long occupied) {
+        long ray = RAYS[dir][square];
+        long blockers = ray & occupied;
+        if (blockers != 0) {
+            ray ^= RAYS[dir][Long.numberOfTrailingZeros(blockers)];
+        }
+        return ray;
+    }
+
+    //
+    // Ray towards lower square numbers, cut after its highest blocker
+    //
+    private static long negativeRay(int dir, int square, long occupied) {
+        long ray = RAYS[dir][square];
+        long blockers = ray & occupied;
+        if (blockers != 0) {
+            ray ^= RAYS[dir][63 - Long.numberOfLeadingZeros(blockers)];
+        }
+        return ray;
+    }
+
+    //
+    // Bitboard of the coordinates, or 0 when they are off the board
+    //
+    private static long bit(int x, int y) {
+        if (x < 0 || x > 7 || y < 0 || y > 7) {
+            return 0L;
+        }
+        return 1L << Position.square(x, y);
+    }
+}
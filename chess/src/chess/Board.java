@@ -1,6 +1,7 @@
 package chess;
 
 import java.awt.Color;
+import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.GridLayout;
 import java.awt.Rectangle;
@@ -8,12 +9,12 @@ import java.awt.Toolkit;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.WindowEvent;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.util.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.swing.*;
 
 
@@ -29,13 +30,59 @@ public class Board extends JFrame {
      */
     public static final int SIZE = 8;
     private static final long serialVersionUID = 1L;
+    //
+    // Time the ai spends searching for a move in milliseconds
+    //
+    private static final long AI_MILLIS = 1000;
+    //
+    // Opening book the ai plays from before it searches, or null if
+    // there is no book file next to the program
+    //
+    private static final OpeningBook BOOK = loadBook(Paths.get("book.bin"));
+    //
+    // Endgame tables the ai plays from once few pieces are left, or
+    // null if there is no tablebase directory next to the program
+    //
+    private static final Tablebase TABLEBASE = loadTablebase(Paths.get("tablebase"));
+    //
+    // Runs the ai searches so the event thread stays free to paint
+    // and take input. The thread is a daemon so it never keeps the
+    // program running after the window closes.
+    //
+    private static final ExecutorService AI_EXECUTOR = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "chess-ai");
+        thread.setDaemon(true);
+        return thread;
+    });
     private Tile[][] board;
+    private Position position;
+    private final MoveCache moves = new MoveCache();
+    private final Search search = newSearch();
     private Player p1;
     private Player p2;
     private Player turn;
     private Tile select;
     private JMenuItem openOp;
     private JMenuItem saveOp;
+    private JMenuItem moveNowOp;
+    private JCheckBoxMenuItem ponderOp;
+    private boolean thinking;
+    private boolean gameOver;
+    //
+    // While pondering, the hash of the position after the predicted
+    // reply, the number of the ponder search so stale results are
+    // dropped, and the result if the search ended before the reply
+    //
+    private long ponderHash;
+    private int ponderId;
+    private boolean pondering;
+    private boolean ponderHit;
+    private SearchResult ponderResult;
+    //
+    // The stop or ponderhit sent to the latest search handed to the
+    // ai thread
+    //
+    private SearchRequest request = new SearchRequest();
 
     /**
      * Constructor for a new Board object that 
@@ -48,6 +95,7 @@ public class Board extends JFrame {
         turn = p1;
         setFrame();
         initBoard();
+        loadPosition();
         setScreen();
         setTitle(turn.getName() + " - WHITE ");
 
@@ -61,17 +109,14 @@ public class Board extends JFrame {
      * Constructor for a Board object that uses a previously 
      * saved game to reconstruct the game at the same point. 
      *
-     * @param board copy of the board to begin the game from 
-     * @param p1 the first chess player
-     * @param p2 the second chess player
-     * @param turn player who's turn it is
+     * @param save the saved game to begin the game from
      */
-    public Board(Tile[][] board, Player p1, Player p2, Player turn) {
+    public Board(Storage save) {
         super();
-        this.board = board;
-        this.p1 = p1;
-        this.p2 = p2;
-        this.turn = turn;
+        this.board = save.extract();
+        this.p1 = save.p1;
+        this.p2 = save.p2;
+        this.turn = save.turn;
         setFrame();
         for (int y = 0; y < 8; y++) {
             for (int x = 0; x < 8; x++) {
@@ -79,8 +124,12 @@ public class Board extends JFrame {
                 board[x][y].addMouseListener(new MoveListener());
             }
         }
+        position = save.position();
         setScreen();
         setTitle(turn.getName() + " - " + turn.getColor());
+        if (isAiTurn()) {
+            startAiMove();
+        }
     }
 
     //
@@ -114,14 +163,22 @@ public class Board extends JFrame {
         JMenuBar menu = new JMenuBar();
         JMenu open = new JMenu("open");
         JMenu save = new JMenu("save");
+        JMenu ai = new JMenu("ai");
         menu.add(open);
         menu.add(save);
+        menu.add(ai);
         openOp = new JMenuItem("File");
         openOp.addMouseListener(new MoveListener());
         open.add(openOp);
         saveOp = new JMenuItem("New");
         saveOp.addMouseListener(new MoveListener());
         save.add(saveOp);
+        moveNowOp = new JMenuItem("Move now");
+        moveNowOp.addMouseListener(new MoveListener());
+        moveNowOp.setEnabled(false);
+        ai.add(moveNowOp);
+        ponderOp = new JCheckBoxMenuItem("Ponder", true);
+        ai.add(ponderOp);
         setJMenuBar(menu);
     }
 
@@ -205,45 +262,146 @@ public class Board extends JFrame {
     // @param y2 y-coordinate of destination tile
     //
     private boolean movePiece(int x1, int y1, int x2, int y2) {
-        ChessPiece cpSelect = board[x1][y1].getCp();
-        if (cpSelect == null) {
+        int from = Position.square(x1, y1);
+        int to = Position.square(x2, y2);
+        moves.update(position);
+        if (!moves.contains(from, to)) {
             return false;
         }
-        Player currPlayer = cpSelect.getPlayer();
-        if (!turn.equals(currPlayer)) {
-            return false;
+        int move = moves.find(from, to, Piece.QUEEN);
+        if (Move.promotion(move) != Piece.EMPTY) {
+            move = moves.find(from, to, getPromotion());
         }
-        if (!cpSelect.canMvTo(x2, y2) || !isClearPath(x1, y1, x2, y2)) {
-            return false;
-        }
-        if (cpSelect.toString().substring(1).equals("pawn") && !canPawnMove(x1, y1, x2, y2)) {
-            return false;
+        applyMove(move);
+        return true;
+    }
+
+    //
+    // Makes a move of the player whose turn it is on the position and
+    // moves the chess pieces on the tiles to match it.
+    //
+    // @param move the packed move to make
+    //
+    private void applyMove(int move) {
+        int x1 = Move.from(move) & 7;
+        int y1 = Move.from(move) >>> 3;
+        int x2 = Move.to(move) & 7;
+        int y2 = Move.to(move) >>> 3;
+        if (Move.captured(move) != Piece.EMPTY) {
+            // a pawn taken en passant is beside the destination, not on it
+            Tile captured = Move.flag(move) == Move.EN_PASSANT ? board[x2][y1] : board[x2][y2];
+            captured.getCp().getPlayer().removePiece(captured.getCp());
+            captured.remove();
+            captured.repaint();
         }
-        ChessPiece cpDestin = board[x2][y2].getCp();
-        if (cpDestin == null || !cpDestin.getPlayer().equals(currPlayer)) {
-            if (cpDestin instanceof King) {
-                JOptionPane.showMessageDialog(this, "Game Over. " + turn.getName() + " Wins! ");
-                if (getContinue().equalsIgnoreCase("yes")) {
-                    this.setVisible(false);
-                    new Board();
-                } else {
-                    this.dispatchEvent(new WindowEvent(this, WindowEvent.WINDOW_CLOSING));
-                }
-            }
-            if (cpDestin != null) {
-                cpDestin.getPlayer().removePiece(cpDestin);
-            }
-            board[x1][y1].remove();
+        ChessPiece cpSelect = relocate(x1, y1, x2, y2);
+        if (Move.promotion(move) != Piece.EMPTY) {
+            Player owner = cpSelect.getPlayer();
+            owner.removePiece(cpSelect);
+            cpSelect = promote(Move.promotion(move), x2, y2, owner, cpSelect.getName());
+            owner.addPiece(cpSelect);
             board[x2][y2].setCp(cpSelect);
-            cpSelect.move(x2, y2);
-            if (turn.equals(p1)) {
-                turn = p2;
-            } else {
-                turn = p1;
-            }
-            return true;
         }
-        return false;
+        if (Move.flag(move) == Move.CASTLE) {
+            relocate(x2 > x1 ? 7 : 0, y1, (x1 + x2) / 2, y1);
+        }
+        position.makeMove(move);
+        Player mover = turn;
+        if (turn.equals(p1)) {
+            turn = p2;
+        } else {
+            turn = p1;
+        }
+        checkGameOver(mover);
+    }
+
+    //
+    // Ends the game when the player to move has no legal move, or when
+    // the position is drawn by the fifty move rule, a threefold
+    // repetition or too little material to mate.
+    //
+    // @param mover the player who just moved
+    //
+    private void checkGameOver(Player mover) {
+        moves.update(position);
+        String message;
+        if (!moves.hasMoves()) {
+            message = position.isInCheck(position.getSideToMove())
+                    ? "Checkmate. " + mover.getName() + " Wins! " : "Stalemate. It's a draw. ";
+        } else if (position.getHalfmoveClock() >= 100 || position.repetitions() >= 2
+                || position.isInsufficientMaterial()) {
+            message = "Game Over. It's a draw. ";
+        } else {
+            return;
+        }
+        gameOver = true;
+        stopPonder();
+        JOptionPane.showMessageDialog(this, message);
+        if (getContinue().equalsIgnoreCase("yes")) {
+            this.setVisible(false);
+            new Board();
+        } else {
+            this.dispatchEvent(new WindowEvent(this, WindowEvent.WINDOW_CLOSING));
+        }
+    }
+
+    //
+    // Colors the tiles the chess piece on the given tile can move to,
+    // or gives them back their own color
+    //
+    // @param from the selected tile
+    // @param on if the targets are highlighted or cleared
+    private void highlightTargets(Tile from, boolean on) {
+        moves.update(position);
+        long targets = moves.targets(Position.square(from.getXco(), from.getYco()));
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            Tile tile = board[to & 7][to >>> 3];
+            tile.setBackground(on ? Color.cyan : tile.getColor());
+        }
+    }
+
+    //
+    // Moves the chess piece at x1,y1 to the empty tile x2,y2
+    //
+    // @return the chess piece that was moved
+    private ChessPiece relocate(int x1, int y1, int x2, int y2) {
+        ChessPiece cp = board[x1][y1].getCp();
+        board[x1][y1].remove();
+        board[x2][y2].setCp(cp);
+        cp.move(x2, y2);
+        board[x1][y1].repaint();
+        board[x2][y2].repaint();
+        return cp;
+    }
+
+    //
+    // Creates the chess piece a pawn is promoted to
+    //
+    private ChessPiece promote(int type, int x, int y, Player owner, String name) {
+        switch (type) {
+            case Piece.ROOK:
+                return new Rook(x, y, owner, name);
+            case Piece.BISHOP:
+                return new Bishop(x, y, owner, name);
+            case Piece.KNIGHT:
+                return new Knight(x, y, owner, name);
+            default:
+                return new Queen(x, y, owner, name);
+        }
+    }
+
+    //
+    // Asks the user which chess piece a pawn reaching
+    // the last row becomes.
+    //
+    private int getPromotion() {
+        String[] names = {"queen", "rook", "bishop", "knight"};
+        int[] types = {Piece.QUEEN, Piece.ROOK, Piece.BISHOP, Piece.KNIGHT};
+        int ans = JOptionPane.showOptionDialog(this, "Promote pawn to: ", "Promotion",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, names, names[0]);
+        return ans < 0 ? Piece.QUEEN : types[ans];
     }
 
     //
@@ -258,217 +416,271 @@ public class Board extends JFrame {
         return ans;
     }
 
+    //
+    // Rebuilds the headless position from the chess pieces on the tiles
+    // so the rules can be checked without going through Swing.
+    //
+    private void loadPosition() {
+        position = new Position();
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                ChessPiece cp = board[x][y].getCp();
+                if (cp != null) {
+                    position.setPiece(x, y, Piece.valueOf(cp.toString()));
+                }
+            }
+        }
+        position.setSideToMove(turn.equals(p1) ? Piece.WHITE : Piece.BLACK);
+        position.initCastling();
+    }
 
     //
-    // Determines if given a pawn at x1,y1 is x2,y2 a legal movement
-    // specifically for a pawn. Only if spot in front of pawn is empty you
-    // can move straight forward and only if enemy chess piece is directly
-    // diagonal you can move diagonal and kill them.
+    // Checks if the player whose turn it is is the computer
+    //
+    private boolean isAiTurn() {
+        return p2.getName().equals("ai") && turn == p2;
+    }
+
     //
-    // @param x1 The x-coordinate of the pawn
-    // @param y1 The y-coordinate of the pawn
-    // @param x2 The x-coordinate of the destination tile
-    // @param y2 The y-coordinate of the destination tile
+    // Starts the ai on its move after the user moved. If the ai was
+    // pondering on the move the user played, the ponder search goes on
+    // with the ai's time budget, otherwise a new search starts.
     //
-    // @return if the pawn can move to the destination tile
-    private boolean canPawnMove(int x1, int y1, int x2, int y2) {
-        ChessPiece opp = board[x2][y2].getCp();
-        if (x1 == x2) {
-            if (opp != null) {
-                return false;
-            }
+    private void aiReply() {
+        if (!pondering) {
+            startAiMove();
+        } else if (position.getHash() != ponderHash) {
+            stopPonder();
+            startAiMove();
         } else {
-            Player currPlayer;
-            if (turn.equals(p1)) {
-                currPlayer = p1;
+            pondering = false;
+            showThinking();
+            if (ponderResult != null) {
+                finishAiMove(ponderResult);
             } else {
-                currPlayer = p2;
-            }
-            if (opp == null || opp.getPlayer().equals(currPlayer)) {
-                return false;
+                ponderHit = true;
+                request.ponderhit(AI_MILLIS);
+                search.ponderhit(AI_MILLIS);
             }
         }
-        return true;
     }
 
     //
-    // Determines if path between current location and destination location
-    // is a clear path. Does not care about non-linear or non-diagonal movement
-    // to account for knights.
+    // Starts the ai searching a copy of the position on the ai thread.
+    // Until the move comes back the board ignores clicks and shows
+    // that the ai is thinking.
     //
-    // @param x1 The x-coordinate of the chess piece
-    // @param y1 The y-coordinate of the chess piece
-    // @param x2 The x-coordinate of the destination tile
-    // @param y2 The y-coordinate of the destination tile
+    private void startAiMove() {
+        showThinking();
+        Position snapshot = position.copy();
+        int pieces = p1.getPieces().size() + p2.getPieces().size();
+        SearchRequest task = new SearchRequest();
+        request = task;
+        AI_EXECUTOR.execute(() -> {
+            SearchResult result = findAiMove(snapshot, pieces, task);
+            SwingUtilities.invokeLater(() -> finishAiMove(result));
+        });
+    }
+
     //
-    // @return if the chess piece can move to the destination tile
-    private boolean isClearPath(int x1, int y1, int x2, int y2) {
-        int iterx;
-        int itery;
-        //if its a knight moving we don't care
-        if (board[x1][y1].getCp() instanceof Knight) {
-            return true;
-        }
-        if (x2 > x1) {
-            iterx = 1;
-        } else if (x1 > x2) {
-            iterx = -1;
-        } else {
-            iterx = 0;
+    // Shows that the ai is thinking and stops taking clicks
+    //
+    private void showThinking() {
+        thinking = true;
+        moveNowOp.setEnabled(true);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        setTitle(turn.getName() + " - thinking...");
+    }
+
+    //
+    // Plays the move the ai found, called on the event thread, and
+    // starts pondering on the reply the ai expects
+    //
+    // @param result the search result, its move is Move.NONE if the ai cannot move
+    private void finishAiMove(SearchResult result) {
+        thinking = false;
+        moveNowOp.setEnabled(false);
+        setCursor(Cursor.getDefaultCursor());
+        if (result.getBestMove() != Move.NONE) {
+            applyMove(result.getBestMove());
         }
-        if (y2 > y1) {
-            itery = 1;
-        } else if (y1 > y2) {
-            itery = -1;
-        } else {
-            itery = 0;
+        setTitle(turn.getName() + " - " + turn.getColor());
+        int[] pv = result.getPv();
+        if (!gameOver && ponderOp.isSelected() && pv.length > 1) {
+            startPonder(pv[1]);
         }
-        return isClearPathHelp(x1, y1, x2, y2, iterx, itery);
     }
 
     //
-    // Calculates if path between x1,y1 and x2,y2 is clear using
-    // iterx and itery which have been calculated to check the tiles in the
-    // proper direction
+    // Searches the position after the reply the ai expects, without
+    // a time limit, while the user thinks about their move
     //
-    // @param x1 The x-coordinate of the chess piece
-    // @param y1 The y-coordinate of the chess piece
-    // @param x2 The x-coordinate of the destination tile
-    // @param y2 The y-coordinate of the destination tile
-    // @param iterx The direction of the chess move on x-plane
-    // @param iterx The direction of the chess move on x-plane
+    // @param predicted the packed move the user is expected to play
+    private void startPonder(int predicted) {
+        Position snapshot = position.copy();
+        snapshot.makeMove(predicted);
+        ponderHash = snapshot.getHash();
+        pondering = true;
+        ponderHit = false;
+        ponderResult = null;
+        int id = ++ponderId;
+        SearchLimits limits = new SearchLimits();
+        limits.setInfinite(true);
+        SearchRequest task = new SearchRequest();
+        request = task;
+        AI_EXECUTOR.execute(() -> {
+            SearchResult result = runSearch(snapshot, limits, task);
+            SwingUtilities.invokeLater(() -> finishPonder(id, result));
+        });
+    }
+
     //
-    // @return If the path between the current and destination tile is clear
-    private boolean isClearPathHelp(int x1, int y1, int x2, int y2, int iterx, int itery) {
-        if (x1 < 0 || x1 > 7 || y1 < 0 || y1 > 7) {
-            return false;
-        }
-        if (x2 < 0 || x2 > 7 || y2 < 0 || y2 > 7) {
-            return false;
+    // Takes the result of a ponder search, called on the event thread.
+    // After a hit the ai plays it, before the user moved it is kept,
+    // and after a miss it is dropped.
+    //
+    private void finishPonder(int id, SearchResult result) {
+        if (id != ponderId) {
+            return;
         }
-        y1 += itery;
-        x1 += iterx;
-        while (x1 != x2 || y1 != y2) {
-            if (board[x1][y1].getCp() != null) {
-                return false;
-            }
-            y1 += itery;
-            x1 += iterx;
+        if (ponderHit) {
+            ponderHit = false;
+            finishAiMove(result);
+        } else if (pondering) {
+            ponderResult = result;
         }
-        return true;
     }
 
     //
-    private ArrayList<AiMove> getSingleCpAiMoves(ChessPiece currPiece, int x, int y) {
-        ArrayList<AiMove> possibleMoves = new ArrayList<>();
-        int oldX = currPiece.x1;
-        int oldY = currPiece.y1;
-        currPiece.x1 = x;
-        currPiece.y1 = y;
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                if (currPiece.canMvTo(i, j)) {
-
-                    ChessPiece enemyCP = board[i][j].getCp();
-                    if (currPiece instanceof Knight || !isClearPath(currPiece.x1, currPiece.y1, i, j)) {
-                        continue;
-                    }
-
-//                    try {
-//                        if (!isClearPath(currPiece.x1, currPiece.y1, i, j)) {
-//                            continue;
-//                        }
-//                    } catch (ArrayIndexOutOfBoundsException e) {
-//                        System.out.println("-" + currPiece.x1 + "-" +  currPiece.y1 + "-" + i + "-" + j);
-//                    }
-
-                    if (currPiece instanceof Pawn && !canPawnMove(currPiece.x1, currPiece.y1, i, j)) {
-                        continue;
-                    }
-                    if (enemyCP == null) {
-                        possibleMoves.add(new AiMove(currPiece, i, j, 1));
-                    }
-                    else if (!currPiece.player.equals(enemyCP.player)) {
-                        if (enemyCP instanceof Pawn)
-                            possibleMoves.add(new AiMove(currPiece, i, j, 2));
-                        else if (enemyCP instanceof Bishop)
-                            possibleMoves.add(new AiMove(currPiece, i, j, 3));
-                        else if (enemyCP instanceof Knight)
-                            possibleMoves.add(new AiMove(currPiece, i, j, 3));
-                        else if (enemyCP instanceof Rook)
-                            possibleMoves.add(new AiMove(currPiece, i, j, 4));
-                        else if (enemyCP instanceof Queen)
-                            possibleMoves.add(new AiMove(currPiece, i, j, 5));
-                        else if (enemyCP instanceof King)
-                            possibleMoves.add(new AiMove(currPiece, i, j, 6));
-
-                    }
-                }
-            }
+    // Stops a running ponder search and drops its result
+    //
+    private void stopPonder() {
+        if (pondering) {
+            pondering = false;
+            ponderId++;
+            stopSearch();
         }
-        currPiece.x1 = oldX;
-        currPiece.y1 = oldY;
-        return possibleMoves;
-
     }
 
+    //
+    // Stops the latest search handed to the ai thread, whether it is
+    // running yet or still waiting for the thread
+    //
+    private void stopSearch() {
+        request.stop();
+        search.stop();
+    }
 
-    private AiMove findAiMove(Player p) {
+    //
+    // Searches on the ai thread, sending the stop or ponderhit of the
+    // request to the search again after every iteration. A search
+    // clears a stop and sets its deadlines when it starts, so either
+    // one sent while the search waited for the thread would be lost.
+    //
+    private SearchResult runSearch(Position snapshot, SearchLimits limits, SearchRequest task) {
+        search.setListener(result -> task.apply(search));
+        return search.search(snapshot, limits);
+    }
 
-        ArrayList<AiMove> possibleMoves = new ArrayList<>();
-        ArrayList<ChessPiece> cpList = p.getPieces();
-        for (int index = 0; index < cpList.size(); index++) {
-            ChessPiece temp = cpList.get(index);
-            possibleMoves.addAll(getSingleCpAiMoves(temp, temp.x1, temp.y1));
+    //
+    // Picks the move for the ai from the opening book or the endgame
+    // tables, or by searching the position within the ai's time budget
+    // when neither knows it. Runs on the ai thread.
+    //
+    // @param pieces the number of pieces both players have left
+    // @param task the stop sent to the search
+    // @return the result of the search
+    private SearchResult findAiMove(Position snapshot, int pieces, SearchRequest task) {
+        int move = BOOK == null ? Move.NONE : BOOK.probe(snapshot);
+        if (move == Move.NONE && TABLEBASE != null && pieces <= Tablebase.MAX_PIECES) {
+            move = TABLEBASE.bestMove(snapshot);
         }
-        ArrayList<AiMove> equalMoves = new ArrayList<>();
-
-        Collections.sort(possibleMoves);
-        int level = possibleMoves.get(0).score;
-
+        if (move != Move.NONE) {
+            return new SearchResult(0, 0, 0, 0, new int[] {move});
+        }
+        return runSearch(snapshot, SearchLimits.moveTime(AI_MILLIS), task);
+    }
 
+    //
+    // Opens the opening book file, returning null if it is missing
+    // or cannot be read so the ai only searches
+    //
+    private static OpeningBook loadBook(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return new OpeningBook(file);
+        } catch (IOException exc) {
+            return null;
+        }
+    }
 
+    //
+    // Creates the search of the ai, looking up the endgame tables
+    // when there are any
+    //
+    private static Search newSearch() {
+        Search search = new Search();
+        search.setTablebase(TABLEBASE);
+        return search;
+    }
 
-        if (level == 1) {
-            ArrayList<AiMove> futureMoveList = new ArrayList<>();
-            for (int i = 0; i < possibleMoves.size(); i++) {
-                System.out.println("a" + i);
-                AiMove temp = possibleMoves.get(i);
-                try {
-                    futureMoveList.addAll(getSingleCpAiMoves(temp.cp, temp.xCo, temp.yCo));
-                } catch (ArrayIndexOutOfBoundsException e) {
+    //
+    // Opens the endgame tables, returning null if the directory is
+    // missing or a table cannot be read so the ai only searches
+    //
+    private static Tablebase loadTablebase(Path dir) {
+        if (!Files.isDirectory(dir)) {
+            return null;
+        }
+        try {
+            return new Tablebase(dir);
+        } catch (IOException exc) {
+            return null;
+        }
+    }
 
-                    System.out.println(i + temp.cp.name);
-                }
 
-                Collections.sort(futureMoveList);
-                if (futureMoveList.size() > 0) {
-                    possibleMoves.get(i).score = futureMoveList.get(0).score;
-                }
 
-            }
-            Collections.sort(possibleMoves);
-            level = possibleMoves.get(0).score;
+    /**
+     * SearchRequest holds what the event thread asked of one search on
+     * the ai thread, so a stop or ponderhit sent before the search
+     * started still reaches it.
+     *
+     * @author Matthew Shew
+     * @version 1.0
+     */
+    private static final class SearchRequest {
+        private volatile boolean stopped;
+        private volatile long deadline = Long.MAX_VALUE;
 
+        //
+        // Asks the search to stop
+        //
+        void stop() {
+            stopped = true;
         }
 
+        //
+        // Gives the search the given time from now
+        //
+        void ponderhit(long millis) {
+            deadline = System.currentTimeMillis() + millis;
+        }
 
-
-
-        for (int i = 0; i < possibleMoves.size(); i++) {
-            if (possibleMoves.get(i).score != level) {
-                break;
+        //
+        // Sends the requests made so far to the running search
+        //
+        void apply(Search search) {
+            if (stopped) {
+                search.stop();
+            } else if (deadline != Long.MAX_VALUE) {
+                search.ponderhit(Math.max(0, deadline - System.currentTimeMillis()));
             }
-            equalMoves.add(possibleMoves.get(i));
         }
-
-        Random rand = new Random();
-        int randNum = rand.nextInt(equalMoves.size());
-        return equalMoves.get(randNum);
     }
 
-
-
     /**
      * MoveListener listens to the chess board for player movements
      * and validates the moves when they are made before changing
@@ -493,24 +705,24 @@ public class Board extends JFrame {
                 System.out.println("not chess move");
                 return;
             }
+            if (thinking) {
+                return;
+            }
             Tile clicked = (Tile) eve.getSource();
             setTitle(turn.getName() + " - " + turn.getColor());
             if (select == null) {
                 select = clicked;
                 select.setBackground(Color.green);
+                highlightTargets(select, true);
             } else {
+                highlightTargets(select, false);
                 boolean successfulMove = movePiece(select.getXco(), select.getYco(), clicked.getXco(), clicked.getYco());
                 clicked.repaint();
                 select.setBackground(select.getColor());
                 select = null;
-                //ai
-                if (successfulMove && p2.getName().equals("ai") && turn == p2) {
-                    AiMove aiMove = findAiMove(p2);
-                    int oldX = aiMove.cp.x1;
-                    int oldY = aiMove.cp.y1;
-                    movePiece(aiMove.cp.x1, aiMove.cp.y1, aiMove.xCo, aiMove.yCo);
-                    board[aiMove.xCo][aiMove.yCo].repaint();
-                    board[oldX][oldY].repaint();
+                if (successfulMove && !gameOver && isAiTurn()) {
+                    aiReply();
+                    return;
                 }
             }
             setTitle(turn.getName() + " - " + turn.getColor());
@@ -530,7 +742,7 @@ public class Board extends JFrame {
 
         /**
          * mousePressed detects when the user clicks the open and save 
-         * game options. 
+         * game options, or tells a thinking ai to move now.
          *
          * @param eve the mouse event trigger
          */
@@ -540,6 +752,9 @@ public class Board extends JFrame {
                 openHelp();
             } else if (eve.getSource() == saveOp) {
                 saveHelp();
+            } else if (eve.getSource() == moveNowOp && thinking) {
+                // the search returns the best move found so far
+                stopSearch();
             }
         }
 
@@ -548,18 +763,15 @@ public class Board extends JFrame {
         // and attempts to retrieve the file. 
         //
         private void openHelp() {
+            stopPonder();
             try {
                 String fileName = JOptionPane.showInputDialog("Enter name of save file: ");
-                FileInputStream fileIn = new FileInputStream(fileName + ".ser");
-                ObjectInputStream in = new ObjectInputStream(fileIn);
-                save = (Storage) in.readObject();
-                in.close();
-                fileIn.close();
+                save = Storage.load(Paths.get(fileName + Storage.EXTENSION));
             } catch (Exception exc) {
                 exc.printStackTrace();
                 return;
             }
-            new Board(save.extract(), save.p1, save.p2, save.turn);
+            new Board(save);
         }
 
 
@@ -570,12 +782,8 @@ public class Board extends JFrame {
         private void saveHelp() {
             try {
                 String fileName = JOptionPane.showInputDialog("Enter name of save file: ");
-                FileOutputStream fileOut = new FileOutputStream(fileName + ".ser");
-                ObjectOutputStream out = new ObjectOutputStream(fileOut);
-                save = new Storage(board, p1, p2, turn);
-                out.writeObject(save);
-                out.close();
-                fileOut.close();
+                save = new Storage(position, p1, p2, turn);
+                save.save(Paths.get(fileName + Storage.EXTENSION));
             } catch (IOException io) {
                 io.printStackTrace();
                 return;
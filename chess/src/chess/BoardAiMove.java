@@ -1,13 +0,0 @@
-package chess;
-
-public class BoardAiMove {
-
-    public static final int SIZE = 8;
-
-    private Tile[][] board;
-    private Player p1;
-    private Player p2;
-    private Player turn;
-    private Tile select;
-
-}
@@ -0,0 +1,263 @@
+package chess;
+
+/**
+ * Fen reads and writes positions in Forsyth-Edwards Notation, the text
+ * format used by chess tools and test suites. Row 8 of the notation is
+ * y = 7 of the Position and white is the first player.
+ *
+ * Parsing scans the text once without splitting it, and can fill an
+ * existing Position so suites of many positions are read without
+ * allocating a Position each.
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public final class Fen {
+    /**
+     * The starting position in Forsyth-Edwards Notation.
+     */
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final String PIECES = " pnbrqk";
+
+    private Fen() {
+    }
+
+    /**
+     * Reads a position. The halfmove clock and fullmove number may be
+     * left out.
+     *
+     * @param fen the position in Forsyth-Edwards Notation
+     * @return the Position
+     * @throws IllegalArgumentException if the text is not a valid position
+     */
+    public static Position parse(CharSequence fen) {
+        Position position = new Position();
+        parse(fen, position);
+        return position;
+    }
+
+    /**
+     * Reads a position into an existing Position, replacing its pieces,
+     * rights, counters and move history.
+     *
+     * @param fen the position in Forsyth-Edwards Notation
+     * @param position the Position to overwrite
+     * @throws IllegalArgumentException if the text is not a valid position
+     */
+    public static void parse(CharSequence fen, Position position) {
+        position.clear();
+        int length = fen.length();
+        int i = skipSpaces(fen, 0);
+        int x = 0;
+        int y = 7;
+        for (; i < length && !Character.isWhitespace(fen.charAt(i)); i++) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                x = 0;
+                y--;
+            } else if (c >= '1' && c <= '8') {
+                x += c - '0';
+            } else {
+                int type = PIECES.indexOf(Character.toLowerCase(c));
+                if (type <= 0 || x > 7 || y < 0) {
+                    throw new IllegalArgumentException("Bad piece placement: " + fen);
+                }
+                int color = Character.isUpperCase(c) ? Piece.WHITE : Piece.BLACK;
+                position.setPiece(x++, y, Piece.make(color, type));
+            }
+        }
+        i = skipSpaces(fen, i);
+        if (i >= length) {
+            throw new IllegalArgumentException("Not a FEN position: " + fen);
+        }
+        position.setSideToMove(fen.charAt(i++) == 'b' ? Piece.BLACK : Piece.WHITE);
+        i = skipSpaces(fen, i);
+        int castling = 0;
+        for (; i < length && !Character.isWhitespace(fen.charAt(i)); i++) {
+            switch (fen.charAt(i)) {
+                case 'K':
+                    castling |= Position.WHITE_KINGSIDE;
+                    break;
+                case 'Q':
+                    castling |= Position.WHITE_QUEENSIDE;
+                    break;
+                case 'k':
+                    castling |= Position.BLACK_KINGSIDE;
+                    break;
+                case 'q':
+                    castling |= Position.BLACK_QUEENSIDE;
+                    break;
+                case '-':
+                    break;
+                default:
+                    throw new IllegalArgumentException("Bad castling rights: " + fen);
+            }
+        }
+        position.setCastling(castling);
+        i = skipSpaces(fen, i);
+        if (i >= length) {
+            throw new IllegalArgumentException("Not a FEN position: " + fen);
+        }
+        if (fen.charAt(i) == '-') {
+            i++;
+        } else {
+            if (i + 1 >= length) {
+                throw new IllegalArgumentException("Bad en passant square: " + fen);
+            }
+            position.setEpSquare(square(fen.charAt(i), fen.charAt(i + 1)));
+            i += 2;
+        }
+        i = skipSpaces(fen, i);
+        if (i < length) {
+            int end = skipNumber(fen, i);
+            position.setHalfmoveClock(number(fen, i, end));
+            i = skipSpaces(fen, end);
+            end = skipNumber(fen, i);
+            if (end > i) {
+                position.setFullmoveNumber(number(fen, i, end));
+            }
+        }
+    }
+
+    /**
+     * Writes a position in Forsyth-Edwards Notation.
+     *
+     * @param position the Position to write
+     * @return the position as text
+     */
+    public static String toFen(Position position) {
+        StringBuilder fen = new StringBuilder(90);
+        write(position, fen);
+        return fen.toString();
+    }
+
+    /**
+     * Writes a position in Forsyth-Edwards Notation at the end of a
+     * StringBuilder, so many positions can share one buffer.
+     *
+     * @param position the Position to write
+     * @param fen the StringBuilder to append to
+     */
+    public static void write(Position position, StringBuilder fen) {
+        for (int y = 7; y >= 0; y--) {
+            int empty = 0;
+            for (int x = 0; x < 8; x++) {
+                int piece = position.getPiece(x, y);
+                if (piece == Piece.EMPTY) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                char c = PIECES.charAt(Piece.type(piece));
+                fen.append(Piece.color(piece) == Piece.WHITE ? Character.toUpperCase(c) : c);
+            }
+            if (empty > 0) {
+                fen.append((char) ('0' + empty));
+            }
+            if (y > 0) {
+                fen.append('/');
+            }
+        }
+        fen.append(position.getSideToMove() == Piece.WHITE ? " w " : " b ");
+        int castling = position.getCastling();
+        if (castling == 0) {
+            fen.append('-');
+        }
+        if ((castling & Position.WHITE_KINGSIDE) != 0) {
+            fen.append('K');
+        }
+        if ((castling & Position.WHITE_QUEENSIDE) != 0) {
+            fen.append('Q');
+        }
+        if ((castling & Position.BLACK_KINGSIDE) != 0) {
+            fen.append('k');
+        }
+        if ((castling & Position.BLACK_QUEENSIDE) != 0) {
+            fen.append('q');
+        }
+        fen.append(' ');
+        if (position.getEpSquare() == Position.NO_SQUARE) {
+            fen.append('-');
+        } else {
+            fen.append(squareName(position.getEpSquare()));
+        }
+        fen.append(' ').append(position.getHalfmoveClock());
+        fen.append(' ').append(position.getFullmoveNumber());
+    }
+
+    /**
+     * Reads a square written as a column letter and row number, such as "e4".
+     *
+     * @param name the name of the square
+     * @return the square number
+     * @throws IllegalArgumentException if the text is not a square
+     */
+    public static int square(String name) {
+        if (name.length() != 2) {
+            throw new IllegalArgumentException("Not a square: " + name);
+        }
+        return square(name.charAt(0), name.charAt(1));
+    }
+
+    /**
+     * Reads a square from its column letter and row number.
+     *
+     * @param column the column letter, 'a' to 'h'
+     * @param row the row number, '1' to '8'
+     * @return the square number
+     * @throws IllegalArgumentException if the characters are not a square
+     */
+    public static int square(char column, char row) {
+        if (column < 'a' || column > 'h' || row < '1' || row > '8') {
+            throw new IllegalArgumentException("Not a square: " + column + row);
+        }
+        return Position.square(column - 'a', row - '1');
+    }
+
+    /**
+     * Writes a square as a column letter and row number, such as "e4".
+     *
+     * @param square the square number
+     * @return the name of the square
+     */
+    public static String squareName(int square) {
+        return "" + (char) ('a' + (square & 7)) + (char) ('1' + (square >>> 3));
+    }
+
+    //
+    // Gets the index of the first character from i on that is not a space
+    //
+    private static int skipSpaces(CharSequence text, int i) {
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    //
+    // Gets the index of the first character from i on that is not a digit
+    //
+    private static int skipNumber(CharSequence text, int i) {
+        while (i < text.length() && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    //
+    // Reads the digits between start and end as a number
+    //
+    private static int number(CharSequence text, int start, int end) {
+        if (start == end || end - start > 6) {
+            throw new IllegalArgumentException("Bad move counter: " + text);
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + text.charAt(i) - '0';
+        }
+        return value;
+    }
+}
@@ -0,0 +1,146 @@
+package chess;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Game is a chess game as stored in PGN: the tags describing it, the
+ * position it started from, the moves played and the result. Moves are
+ * kept packed, so the game can be replayed on the headless Position.
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public class Game {
+    /**
+     * Result of a game that is unfinished or whose result is unknown.
+     */
+    public static final String UNKNOWN = "*";
+    private final Map<String, String> tags = new LinkedHashMap<>();
+    private String startFen = Fen.START;
+    private int[] moves = new int[128];
+    private int moveCount;
+    private String result = UNKNOWN;
+
+    /**
+     * Gets the value of a tag.
+     *
+     * @param name the name of the tag, such as "White"
+     * @return the value, or null if the tag is not set
+     */
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    /**
+     * Sets the value of a tag.
+     *
+     * @param name the name of the tag, such as "White"
+     * @param value the value
+     */
+    public void setTag(String name, String value) {
+        tags.put(name, value);
+    }
+
+    /**
+     * Gets every tag in the order they were set.
+     *
+     * @return a read only view of the tags
+     */
+    public Map<String, String> getTags() {
+        return Collections.unmodifiableMap(tags);
+    }
+
+    /**
+     * Gets the position the game started from.
+     *
+     * @return the starting position in Forsyth-Edwards Notation
+     */
+    public String getStartFen() {
+        return startFen;
+    }
+
+    /**
+     * Sets the position the game starts from. Moves already added
+     * are dropped since they belong to the old position.
+     *
+     * @param fen the starting position in Forsyth-Edwards Notation
+     */
+    public void setStartFen(String fen) {
+        startFen = fen;
+        moveCount = 0;
+    }
+
+    /**
+     * Creates the position the game started from.
+     *
+     * @return the starting Position
+     */
+    public Position startPosition() {
+        return Fen.parse(startFen);
+    }
+
+    /**
+     * Adds the next move of the game. The move is not checked.
+     *
+     * @param move the packed move
+     */
+    public void addMove(int move) {
+        if (moveCount == moves.length) {
+            moves = Arrays.copyOf(moves, moveCount * 2);
+        }
+        moves[moveCount++] = move;
+    }
+
+    /**
+     * Gets a move of the game.
+     *
+     * @param index the number of plies played before the move
+     * @return the packed move
+     */
+    public int getMove(int index) {
+        return moves[index];
+    }
+
+    /**
+     * Gets the number of moves played, counting each player's move.
+     *
+     * @return the number of plies
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Gets the result of the game.
+     *
+     * @return "1-0", "0-1", "1/2-1/2" or UNKNOWN
+     */
+    public String getResult() {
+        return result;
+    }
+
+    /**
+     * Sets the result of the game.
+     *
+     * @param result "1-0", "0-1", "1/2-1/2" or UNKNOWN
+     */
+    public void setResult(String result) {
+        this.result = result;
+    }
+
+    /**
+     * Creates the position reached after every move of the game.
+     *
+     * @return the final Position
+     */
+    public Position finalPosition() {
+        Position position = startPosition();
+        for (int i = 0; i < moveCount; i++) {
+            position.makeMove(moves[i]);
+        }
+        return position;
+    }
+}
@@ -0,0 +1,30 @@
+package chess;
+
+/**
+ * GameConsumer receives the games read by a PgnIngest. It is called
+ * from several threads at once, so an implementation must be thread
+ * safe. Both methods do nothing unless overridden.
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public interface GameConsumer {
+    /**
+     * Receives one position of a game and the move played in it. The
+     * positions of a game arrive in order, before the game itself.
+     *
+     * @param game the Game being replayed
+     * @param position the Position before the move, only valid during the call
+     * @param move the packed move played
+     */
+    default void position(Game game, Position position, int move) {
+    }
+
+    /**
+     * Receives a game whose moves were all legal, after its positions.
+     *
+     * @param game the Game
+     */
+    default void game(Game game) {
+    }
+}
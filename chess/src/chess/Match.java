@@ -0,0 +1,401 @@
+package chess;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Match plays games between two engine settings on the headless
+ * Position, several games at once, to show whether a change to the ai
+ * made it stronger or faster. Every game starts from a few random
+ * opening moves and every opening is played twice with the colors
+ * swapped, so neither side profits from a lucky opening.
+ *
+ * A game ends by checkmate or stalemate, or is drawn by threefold
+ * repetition, the fifty move rule, lack of mating material or after
+ * MAX_PLIES plies. The report gives the wins, draws and losses of the
+ * first engine, the Elo difference with its 95% confidence interval,
+ * and the speed and time per move of each engine.
+ *
+ * An engine is written as comma separated settings, such as
+ * "movetime=100" or "depth=5,hash=32,tb=tablebase":
+ *   movetime, depth, nodes  the budget of every move, combined when
+ *                           several are given, 100 ms by default
+ *   hash                    the transposition table in megabytes
+ *   tb                      a directory of endgame tables
+ *   name                    the name in the report and the PGN file
+ *
+ * Usage: java chess.Match games engine1 engine2 [threads] [pgn]
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public class Match {
+    /**
+     * Longest game in plies before it is adjudicated a draw.
+     */
+    public static final int MAX_PLIES = 400;
+    /**
+     * Random plies played before the engines take over.
+     */
+    public static final int OPENING_PLIES = 8;
+    /**
+     * Time per move of an engine whose settings give no budget.
+     */
+    public static final long DEFAULT_MOVE_MILLIS = 100;
+    private final Engine[] engines;
+    private final int threads;
+    private final long seed;
+    private PgnWriter pgn;
+    private final AtomicInteger wins = new AtomicInteger();
+    private final AtomicInteger draws = new AtomicInteger();
+    private final AtomicInteger losses = new AtomicInteger();
+    private final AtomicLong[] nodes = {new AtomicLong(), new AtomicLong()};
+    private final AtomicLong[] millis = {new AtomicLong(), new AtomicLong()};
+    private final AtomicLong[] moves = {new AtomicLong(), new AtomicLong()};
+
+    /**
+     * Constructor for a Match between two engines.
+     *
+     * @param first the engine whose results are reported
+     * @param second its opponent
+     * @param threads the number of games played at once, at least 1
+     * @param seed the seed of the random openings
+     */
+    public Match(Engine first, Engine second, int threads, long seed) {
+        engines = new Engine[] {first, second};
+        this.threads = Math.max(1, threads);
+        this.seed = seed;
+    }
+
+    /**
+     * main plays a match and prints its report.
+     *
+     * @param args the number of games, the two engines, the number of
+     *        threads and a PGN file for the games
+     * @throws Exception if an engine or the PGN file cannot be opened
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("Usage: java chess.Match games engine1 engine2 [threads] [pgn]");
+            System.out.println("  engine: movetime=N,depth=N,nodes=N,hash=MB,tb=dir,name=text");
+            return;
+        }
+        int games = Integer.parseInt(args[0]);
+        Engine first = Engine.parse(args[1], "engine1");
+        Engine second = Engine.parse(args[2], "engine2");
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        Match match = new Match(first, second, threads, System.nanoTime());
+        if (args.length > 4) {
+            match.setPgn(new PgnWriter(new OutputStreamWriter(Files.newOutputStream(Paths.get(args[4])),
+                    StandardCharsets.UTF_8)));
+        }
+        long start = System.currentTimeMillis();
+        match.play(games);
+        System.out.printf("%d games in %.1f s%n", games, (System.currentTimeMillis() - start) / 1000.0);
+        match.report();
+    }
+
+    /**
+     * Sets the writer the finished games are written to, closed at
+     * the end of play.
+     *
+     * @param pgn the writer, or null to keep no games
+     */
+    public void setPgn(PgnWriter pgn) {
+        this.pgn = pgn;
+    }
+
+    /**
+     * Plays the games, rounded up to an even number so every opening
+     * is played with both colors, and returns once all have ended.
+     *
+     * @param games the number of games
+     * @throws IOException if a game cannot be written
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void play(int games) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> tasks = new ArrayList<>();
+        int pairs = (games + 1) / 2;
+        try {
+            for (int pair = 0; pair < pairs; pair++) {
+                int round = pair;
+                tasks.add(pool.submit(() -> {
+                    playPair(round);
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (ExecutionException exc) {
+            throw new IOException("A game failed", exc.getCause());
+        } finally {
+            pool.shutdownNow();
+            if (pgn != null) {
+                pgn.close();
+            }
+        }
+    }
+
+    /**
+     * Prints the results of the first engine and the speed of both.
+     */
+    public void report() {
+        int w = wins.get();
+        int d = draws.get();
+        int l = losses.get();
+        int n = w + d + l;
+        System.out.printf("%s vs %s: +%d =%d -%d  score %.1f%%%n", engines[0].name, engines[1].name,
+                w, d, l, n == 0 ? 0.0 : 100.0 * (w + d / 2.0) / n);
+        if (n > 0) {
+            double score = (w + d / 2.0) / n;
+            // the spread of one game's score gives the error of the mean
+            double variance = (w * Math.pow(1 - score, 2) + d * Math.pow(0.5 - score, 2)
+                    + l * Math.pow(score, 2)) / n;
+            double margin = 1.96 * Math.sqrt(variance / n);
+            System.out.printf("Elo difference: %.1f  95%% interval [%.1f, %.1f]%n", elo(score),
+                    elo(score - margin), elo(score + margin));
+        }
+        for (int i = 0; i < engines.length; i++) {
+            long count = Math.max(1, moves[i].get());
+            System.out.printf("%s: %.0f nodes/s  %.1f ms/move  %d moves%n", engines[i].name,
+                    nodes[i].get() * 1000.0 / Math.max(1, millis[i].get()), millis[i].get() / (double) count,
+                    moves[i].get());
+        }
+    }
+
+    /**
+     * Gets the number of games the first engine won.
+     *
+     * @return the number of wins
+     */
+    public int getWins() {
+        return wins.get();
+    }
+
+    /**
+     * Gets the number of drawn games.
+     *
+     * @return the number of draws
+     */
+    public int getDraws() {
+        return draws.get();
+    }
+
+    /**
+     * Gets the number of games the first engine lost.
+     *
+     * @return the number of losses
+     */
+    public int getLosses() {
+        return losses.get();
+    }
+
+    //
+    // Plays one opening twice, the first engine taking white then black
+    //
+    private void playPair(int round) throws IOException {
+        int[] opening = opening(new Random(seed + round));
+        TranspositionTable[] tables = new TranspositionTable[engines.length];
+        Search[] searches = new Search[engines.length];
+        for (int i = 0; i < engines.length; i++) {
+            tables[i] = new TranspositionTable(engines[i].hashMegabytes, TranspositionTable.Replacement.AGE_AND_DEPTH);
+            searches[i] = new Search(tables[i]);
+            searches[i].setTablebase(engines[i].tablebase);
+        }
+        for (int game = 0; game < 2; game++) {
+            int white = game;
+            // each game starts without the knowledge of the last one
+            for (TranspositionTable table : tables) {
+                table.clear();
+            }
+            String result = playGame(round * 2 + game + 1, opening, white, searches);
+            boolean firstWhite = white == 0;
+            if (result.equals("1/2-1/2")) {
+                draws.incrementAndGet();
+            } else if (result.equals("1-0") == firstWhite) {
+                wins.incrementAndGet();
+            } else {
+                losses.incrementAndGet();
+            }
+        }
+    }
+
+    //
+    // Plays a game from an opening and returns its result, with the
+    // engine of the given index taking white
+    //
+    private String playGame(int number, int[] opening, int white, Search[] searches) throws IOException {
+        Game game = new Game();
+        game.setTag("Event", "Match");
+        game.setTag("Round", Integer.toString(number));
+        game.setTag("White", engines[white].name);
+        game.setTag("Black", engines[white ^ 1].name);
+        Position position = game.startPosition();
+        for (int move : opening) {
+            game.addMove(move);
+            position.makeMove(move);
+        }
+        MoveList legal = new MoveList();
+        String result = null;
+        while (result == null) {
+            legal.clear();
+            position.generateLegalMoves(legal);
+            if (legal.size() == 0) {
+                boolean mated = position.isInCheck(position.getSideToMove());
+                result = !mated ? "1/2-1/2" : position.getSideToMove() == Piece.WHITE ? "0-1" : "1-0";
+            } else if (position.getHalfmoveClock() >= 100 || position.repetitions() >= 2
+                    || position.isInsufficientMaterial() || game.getMoveCount() >= MAX_PLIES) {
+                result = "1/2-1/2";
+            } else {
+                int engine = position.getSideToMove() == Piece.WHITE ? white : white ^ 1;
+                SearchResult found = searches[engine].search(position, engines[engine].limits);
+                nodes[engine].addAndGet(found.getNodes());
+                millis[engine].addAndGet(found.getMillis());
+                moves[engine].incrementAndGet();
+                int move = found.getBestMove() != Move.NONE ? found.getBestMove() : legal.get(0);
+                game.addMove(move);
+                position.makeMove(move);
+            }
+        }
+        game.setResult(result);
+        if (pgn != null) {
+            synchronized (pgn) {
+                pgn.write(game);
+            }
+        }
+        return result;
+    }
+
+    //
+    // Picks random legal opening moves from the start position. An
+    // opening that ends in mate or stalemate is thrown away and a new
+    // one picked.
+    //
+    private static int[] opening(Random random) {
+        Position position = Position.startPosition();
+        MoveList legal = new MoveList();
+        int[] opening = new int[OPENING_PLIES];
+        for (int i = 0; i < OPENING_PLIES; i++) {
+            legal.clear();
+            position.generateLegalMoves(legal);
+            if (legal.size() == 0) {
+                position = Position.startPosition();
+                i = -1;
+                continue;
+            }
+            opening[i] = legal.get(random.nextInt(legal.size()));
+            position.makeMove(opening[i]);
+        }
+        return opening;
+    }
+
+    //
+    // Converts an expected score into an Elo difference
+    //
+    private static double elo(double score) {
+        double clamped = Math.max(0.001, Math.min(0.999, score));
+        return -400 * Math.log10(1 / clamped - 1);
+    }
+
+    /**
+     * Engine holds the settings of one side of a Match.
+     *
+     * @author Matthew Shew
+     * @version 1.0
+     */
+    public static class Engine {
+        private final String name;
+        private final SearchLimits limits;
+        private final int hashMegabytes;
+        private final Tablebase tablebase;
+
+        /**
+         * Constructor for an Engine.
+         *
+         * @param name the name in the report
+         * @param limits the budget of every move
+         * @param hashMegabytes the size of the transposition table
+         * @param tablebase the endgame tables, or null for none
+         */
+        public Engine(String name, SearchLimits limits, int hashMegabytes, Tablebase tablebase) {
+            this.name = name;
+            this.limits = limits;
+            this.hashMegabytes = hashMegabytes;
+            this.tablebase = tablebase;
+        }
+
+        /**
+         * Reads the settings of an Engine, such as "depth=5,hash=32".
+         *
+         * @param spec the comma separated settings
+         * @param name the name used when the settings have none
+         * @return the Engine
+         * @throws IOException if its endgame tables cannot be read
+         * @throws IllegalArgumentException if a setting is unknown
+         */
+        public static Engine parse(String spec, String name) throws IOException {
+            SearchLimits limits = new SearchLimits();
+            int hash = TranspositionTable.DEFAULT_MB;
+            Tablebase tablebase = null;
+            for (String setting : spec.split(",")) {
+                int equals = setting.indexOf('=');
+                if (equals < 0) {
+                    throw new IllegalArgumentException("Not a setting: " + setting);
+                }
+                String key = setting.substring(0, equals).trim();
+                String value = setting.substring(equals + 1).trim();
+                switch (key) {
+                    case "movetime":
+                        limits.setMoveTime(Long.parseLong(value));
+                        break;
+                    case "depth":
+                        limits.setDepth(Integer.parseInt(value));
+                        break;
+                    case "nodes":
+                        limits.setNodes(Long.parseLong(value));
+                        break;
+                    case "hash":
+                        hash = Integer.parseInt(value);
+                        break;
+                    case "tb":
+                        tablebase = new Tablebase(Paths.get(value));
+                        break;
+                    case "name":
+                        name = value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown setting: " + key);
+                }
+            }
+            // an engine without a budget gets the default time per move
+            if (limits.getMoveTime() == SearchLimits.NONE && limits.getDepth() == Search.MAX_PLY
+                    && limits.getNodes() == Long.MAX_VALUE) {
+                limits.setMoveTime(DEFAULT_MOVE_MILLIS);
+            }
+            return new Engine(name, limits, hash, tablebase);
+        }
+
+        /**
+         * Gets the name of the Engine.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package chess;
+
+/**
+ * Move packs a chess move into a single int so move lists can be kept
+ * in primitive arrays instead of allocating an object per candidate.
+ *
+ * Bits 0-5 hold the origin square, bits 6-11 the destination square,
+ * bits 12-15 the moving piece code, bits 16-19 the captured piece code,
+ * bits 20-22 the piece type promoted to and bits 23-25 the move flag.
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public final class Move {
+    /**
+     * The value used for no move. No legal move starts and ends
+     * on the same square so it never collides with a real move.
+     */
+    public static final int NONE = 0;
+    /**
+     * Flag of a plain move or capture.
+     */
+    public static final int NORMAL = 0;
+    /**
+     * Flag of a pawn moving two tiles from its starting row.
+     */
+    public static final int DOUBLE_PUSH = 1;
+    /**
+     * Flag of a pawn capturing en passant.
+     */
+    public static final int EN_PASSANT = 2;
+    /**
+     * Flag of a king castling, the rook moves along with it.
+     */
+    public static final int CASTLE = 3;
+
+    private Move() {
+    }
+
+    /**
+     * Packs the parts of a move into an int.
+     *
+     * @param from the origin square
+     * @param to the destination square
+     * @param piece the code of the moving piece
+     * @param captured the code of the captured piece, or Piece.EMPTY
+     * @param promotion the type promoted to, or Piece.EMPTY
+     * @param flag NORMAL, DOUBLE_PUSH, EN_PASSANT or CASTLE
+     * @return the packed move
+     */
+    public static int make(int from, int to, int piece, int captured, int promotion, int flag) {
+        return from | (to << 6) | (piece << 12) | (captured << 16) | (promotion << 20) | (flag << 23);
+    }
+
+    /**
+     * Writes a move in the coordinate notation used by engine
+     * protocols, such as "e2e4" or "e7e8q".
+     *
+     * @param move the packed move
+     * @return the move as text, or "0000" for no move
+     */
+    public static String name(int move) {
+        if (move == NONE) {
+            return "0000";
+        }
+        String name = Fen.squareName(from(move)) + Fen.squareName(to(move));
+        if (promotion(move) != Piece.EMPTY) {
+            name += " pnbrqk".charAt(promotion(move));
+        }
+        return name;
+    }
+
+    /**
+     * Gets the origin square of a move.
+     *
+     * @param move the packed move
+     * @return the origin square
+     */
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    /**
+     * Gets the destination square of a move.
+     *
+     * @param move the packed move
+     * @return the destination square
+     */
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    /**
+     * Gets the code of the moving piece.
+     *
+     * @param move the packed move
+     * @return the piece code
+     */
+    public static int piece(int move) {
+        return (move >>> 12) & 0xF;
+    }
+
+    /**
+     * Gets the code of the captured piece.
+     *
+     * @param move the packed move
+     * @return the piece code, or Piece.EMPTY
+     */
+    public static int captured(int move) {
+        return (move >>> 16) & 0xF;
+    }
+
+    /**
+     * Gets the type a pawn is promoted to.
+     *
+     * @param move the packed move
+     * @return the piece type, or Piece.EMPTY
+     */
+    public static int promotion(int move) {
+        return (move >>> 20) & 0x7;
+    }
+
+    /**
+     * Gets the flag of a move.
+     *
+     * @param move the packed move
+     * @return NORMAL, DOUBLE_PUSH, EN_PASSANT or CASTLE
+     */
+    public static int flag(int move) {
+        return (move >>> 23) & 0x7;
+    }
+}
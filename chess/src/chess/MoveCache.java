@@ -0,0 +1,94 @@
+package chess;
+
+/**
+ * MoveCache keeps the legal moves of one Position so a user interface
+ * can ask about them many times while the position stays the same. The
+ * moves are generated once per position, recognized by its hash, and
+ * the destinations of every square are kept as a bitboard so checking
+ * a move takes a single bit test.
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public class MoveCache {
+    private final MoveList moves = new MoveList();
+    private final long[] targets = new long[Position.SQUARES];
+    private long hash;
+    private boolean valid;
+
+    /**
+     * Regenerates the moves unless they are already those of the
+     * given Position.
+     *
+     * @param position the Position the moves are asked about
+     */
+    public void update(Position position) {
+        if (valid && hash == position.getHash()) {
+            return;
+        }
+        moves.clear();
+        position.generateLegalMoves(moves);
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = 0L;
+        }
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            targets[Move.from(move)] |= Bitboards.bit(Move.to(move));
+        }
+        hash = position.getHash();
+        valid = true;
+    }
+
+    /**
+     * Checks if the side to move has any legal move, which it lacks
+     * when checkmated or stalemated.
+     *
+     * @return if there is a move
+     */
+    public boolean hasMoves() {
+        return moves.size() > 0;
+    }
+
+    /**
+     * Gets the squares the piece on a square can move to.
+     *
+     * @param from the origin square
+     * @return the bitboard of destination squares
+     */
+    public long targets(int from) {
+        return targets[from];
+    }
+
+    /**
+     * Checks if there is a move between two squares.
+     *
+     * @param from the origin square
+     * @param to the destination square
+     * @return if the move can be made
+     */
+    public boolean contains(int from, int to) {
+        return (targets[from] & Bitboards.bit(to)) != 0;
+    }
+
+    /**
+     * Finds the move between two squares.
+     *
+     * @param from the origin square
+     * @param to the destination square
+     * @param promotion the type to promote to if the move is a promotion
+     * @return the packed move, or Move.NONE if there is none
+     */
+    public int find(int from, int to, int promotion) {
+        if (!contains(from, to)) {
+            return Move.NONE;
+        }
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (Move.from(move) == from && Move.to(move) == to
+                    && (Move.promotion(move) == Piece.EMPTY || Move.promotion(move) == promotion)) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+}
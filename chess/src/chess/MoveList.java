@@ -0,0 +1,70 @@
+package chess;
+
+/**
+ * MoveList is a reusable buffer of packed moves. A list is allocated
+ * once and cleared between uses so generating moves creates no garbage.
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public class MoveList {
+    /**
+     * Largest number of moves a list can hold, more than any
+     * chess position allows.
+     */
+    public static final int CAPACITY = 256;
+    private int[] moves;
+    private int size;
+
+    /**
+     * Constructor for an empty MoveList.
+     */
+    public MoveList() {
+        moves = new int[CAPACITY];
+    }
+
+    /**
+     * Adds a packed move at the end of the list.
+     *
+     * @param move the packed move
+     */
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+    /**
+     * Gets the packed move at the given index.
+     *
+     * @param index the index in the list
+     * @return the packed move
+     */
+    public int get(int index) {
+        return moves[index];
+    }
+
+    /**
+     * Replaces the packed move at the given index.
+     *
+     * @param index the index in the list
+     * @param move the packed move
+     */
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    /**
+     * Gets the number of moves in the list.
+     *
+     * @return the number of moves
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Empties the list so it can be reused.
+     */
+    public void clear() {
+        size = 0;
+    }
+}
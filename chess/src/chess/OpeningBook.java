@@ -0,0 +1,254 @@
+package chess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * OpeningBook holds the moves played in the opening of a collection of
+ * games, so the ai can play the first moves without searching.
+ *
+ * The book file is a sorted array of ENTRY_BYTES byte entries: the
+ * Zobrist hash of a position, a packed move played in it and the
+ * weight of the move, ordered by hash and then by falling weight.
+ * The file is memory-mapped and searched with a binary search, so a
+ * lookup reads a handful of entries and the book takes no heap.
+ *
+ * Usage:
+ *   java chess.OpeningBook build games.pgn book.bin [plies] [minGames]
+ *   java chess.OpeningBook probe book.bin [fen]
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public class OpeningBook {
+    /**
+     * Number of bytes of one book entry.
+     */
+    public static final int ENTRY_BYTES = 16;
+    /**
+     * Number of plies of each game added to a book by default.
+     */
+    public static final int DEFAULT_PLIES = 24;
+    private final MappedByteBuffer entries;
+    private final int size;
+    private final MoveList moves = new MoveList();
+    private final Random random = new Random();
+
+    /**
+     * Constructor for an OpeningBook reading a book file.
+     *
+     * @param file the book file
+     * @throws IOException if the file cannot be read or is not a book
+     */
+    public OpeningBook(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() % ENTRY_BYTES != 0 || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not an opening book: " + file);
+            }
+            entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            size = (int) (channel.size() / ENTRY_BYTES);
+        }
+    }
+
+    /**
+     * main builds a book from a PGN file or lists the book moves of
+     * a position.
+     *
+     * @param args the mode and its files as described above
+     * @throws Exception if a file cannot be read or written
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 3 && args[0].equals("build")) {
+            int plies = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_PLIES;
+            int minGames = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+            long count = build(Paths.get(args[1]), Paths.get(args[2]), plies, minGames,
+                    Runtime.getRuntime().availableProcessors());
+            System.out.println("entries: " + count);
+        } else if (args.length >= 2 && args[0].equals("probe")) {
+            OpeningBook book = new OpeningBook(Paths.get(args[1]));
+            String fen = args.length > 2 ? String.join(" ", java.util.Arrays.copyOfRange(args, 2, args.length))
+                    : Fen.START;
+            Position position = Fen.parse(fen);
+            San san = new San();
+            int first = book.find(position.getHash());
+            for (int i = first; i < book.size && book.hash(i) == position.getHash(); i++) {
+                if (book.isLegal(position, book.move(i))) {
+                    System.out.println(san.toSan(position, book.move(i)) + " " + book.weight(i));
+                }
+            }
+        } else {
+            System.out.println("Usage: java chess.OpeningBook build games.pgn book.bin [plies] [minGames]");
+            System.out.println("       java chess.OpeningBook probe book.bin [fen]");
+        }
+    }
+
+    /**
+     * Builds a book from the first plies of every game of a PGN file.
+     * A move weighs 2 for every game its player won and 1 for every
+     * draw, so moves that only lost are left out.
+     *
+     * @param pgn the PGN file to read
+     * @param book the book file to write
+     * @param plies the number of plies of each game to add
+     * @param minGames the number of games a move must be played in
+     * @param threads the number of parsing threads
+     * @return the number of entries written
+     * @throws IOException if a file cannot be read or written
+     * @throws InterruptedException if the thread is interrupted while reading
+     */
+    public static long build(Path pgn, Path book, int plies, int minGames, int threads)
+            throws IOException, InterruptedException {
+        // weight and number of games of every move, by position hash
+        Map<Long, Map<Integer, long[]>> counts = new ConcurrentHashMap<>();
+        PgnIngest ingest = new PgnIngest(threads, new GameConsumer() {
+            @Override
+            public void position(Game game, Position position, int move) {
+                if (position.getFullmoveNumber() * 2 - (position.getSideToMove() == Piece.WHITE ? 2 : 1)
+                        >= plies) {
+                    return;
+                }
+                int points = points(game.getResult(), position.getSideToMove());
+                counts.compute(position.getHash(), (hash, byMove) -> {
+                    if (byMove == null) {
+                        byMove = new HashMap<>();
+                    }
+                    long[] count = byMove.computeIfAbsent(move, m -> new long[2]);
+                    count[0] += points;
+                    count[1]++;
+                    return byMove;
+                });
+            }
+        });
+        ingest.ingest(pgn);
+        List<long[]> list = new ArrayList<>();
+        for (Map.Entry<Long, Map<Integer, long[]>> position : counts.entrySet()) {
+            for (Map.Entry<Integer, long[]> move : position.getValue().entrySet()) {
+                long[] count = move.getValue();
+                if (count[0] > 0 && count[1] >= minGames) {
+                    list.add(new long[] {position.getKey(), move.getKey(), Math.min(count[0], Integer.MAX_VALUE)});
+                }
+            }
+        }
+        list.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(b[2], a[2]));
+        ByteBuffer buffer = ByteBuffer.allocate(list.size() * ENTRY_BYTES);
+        for (long[] entry : list) {
+            buffer.putLong(entry[0]);
+            buffer.putInt((int) entry[1]);
+            buffer.putInt((int) entry[2]);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(book, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        return list.size();
+    }
+
+    /**
+     * Picks a book move of the Position at random, in proportion to
+     * the weights of its moves. Not safe to call from several threads.
+     *
+     * @param position the Position to look up, left unchanged
+     * @return the packed move, or Move.NONE if the position is not in the book
+     */
+    public int probe(Position position) {
+        long hash = position.getHash();
+        int first = find(hash);
+        long total = 0;
+        for (int i = first; i < size && hash(i) == hash; i++) {
+            total += weight(i);
+        }
+        if (total == 0) {
+            return Move.NONE;
+        }
+        long pick = (long) (random.nextDouble() * total);
+        for (int i = first; i < size && hash(i) == hash; i++) {
+            pick -= weight(i);
+            if (pick < 0) {
+                return isLegal(position, move(i)) ? move(i) : Move.NONE;
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Gets the number of entries in the book.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    //
+    // Finds the first entry with the hash, or where it would be
+    //
+    private int find(long hash) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (hash(mid) < hash) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    //
+    // Checks that a book move is a legal move of the position, in case
+    // of a hash collision or a book built with other move codes
+    //
+    private boolean isLegal(Position position, int move) {
+        moves.clear();
+        position.generateLegalMoves(moves);
+        for (int i = 0; i < moves.size(); i++) {
+            if (moves.get(i) == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //
+    // Reads the fields of an entry
+    //
+    private long hash(int index) {
+        return entries.getLong(index * ENTRY_BYTES);
+    }
+
+    private int move(int index) {
+        return entries.getInt(index * ENTRY_BYTES + 8);
+    }
+
+    private int weight(int index) {
+        return entries.getInt(index * ENTRY_BYTES + 12);
+    }
+
+    //
+    // Gets the points of a game result for the given side: 2 for a win,
+    // 1 for a draw or an unknown result and 0 for a loss
+    //
+    private static int points(String result, int color) {
+        if (result.equals("1/2-1/2") || result.equals(Game.UNKNOWN)) {
+            return 1;
+        }
+        boolean whiteWon = result.equals("1-0");
+        return whiteWon == (color == Piece.WHITE) ? 2 : 0;
+    }
+}
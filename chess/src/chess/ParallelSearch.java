@@ -0,0 +1,154 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * ParallelSearch runs a Search on several threads at once in the Lazy
+ * SMP style. Every thread searches the same root with its own Search
+ * and all of them share one lock-free TranspositionTable, so the work
+ * of one thread shows up as cutoffs and move hints for the others.
+ * Half of the helper threads search one ply deeper to spread the work.
+ *
+ * The main thread decides the result. When it finishes the helpers are
+ * stopped and their node counts are added to the result.
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public class ParallelSearch {
+    private final TranspositionTable table;
+    private final Search[] searches;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor for a ParallelSearch with its own thread pool.
+     *
+     * @param threads the number of searching threads, at least 1
+     * @param table the table shared by every thread
+     */
+    public ParallelSearch(int threads, TranspositionTable table) {
+        this.table = table;
+        searches = new Search[Math.max(1, threads)];
+        for (int i = 0; i < searches.length; i++) {
+            searches[i] = new Search(table);
+            searches[i].setDepthOffset(i % 2 == 0 ? 0 : 1);
+        }
+        pool = new ForkJoinPool(searches.length);
+    }
+
+    /**
+     * Gets the number of searching threads.
+     *
+     * @return the number of threads
+     */
+    public int getThreads() {
+        return searches.length;
+    }
+
+    /**
+     * Searches the Position on every thread until one of the budgets
+     * runs out. The node budget is shared between the threads.
+     *
+     * @param position the Position to search, left unchanged
+     * @param maxDepth the deepest iteration to search
+     * @param maxMillis the time budget in milliseconds
+     * @param maxNodes the node budget
+     * @return the result of the main thread with the nodes of every thread
+     */
+    public SearchResult search(Position position, int maxDepth, long maxMillis, long maxNodes) {
+        SearchLimits limits = SearchLimits.moveTime(maxMillis);
+        limits.setDepth(maxDepth);
+        limits.setNodes(maxNodes);
+        return search(position, limits);
+    }
+
+    /**
+     * Searches the Position on every thread until one of the limits
+     * runs out. The node budget is shared between the threads.
+     *
+     * @param position the Position to search, left unchanged
+     * @param limits the budgets of the search
+     * @return the result of the main thread with the nodes of every thread
+     */
+    public SearchResult search(Position position, SearchLimits limits) {
+        table.newSearch();
+        SearchLimits share = limits.copy();
+        share.setNodes(Math.max(1, limits.getNodes() / searches.length));
+        List<ForkJoinTask<SearchResult>> tasks = new ArrayList<>();
+        for (Search search : searches) {
+            search.clearStop();
+            tasks.add(pool.submit(() -> search.iterate(position, share)));
+        }
+        SearchResult main = tasks.get(0).join();
+        long nodes = main.getNodes();
+        for (int i = 1; i < searches.length; i++) {
+            searches[i].stop();
+            tasks.get(i).quietlyJoin();
+            nodes += searches[i].getNodes();
+        }
+        return new SearchResult(main.getScore(), main.getDepth(), nodes, main.getMillis(), main.getPv());
+    }
+
+    /**
+     * Asks a running search to stop on every thread.
+     */
+    public void stop() {
+        for (Search search : searches) {
+            search.stop();
+        }
+    }
+
+    /**
+     * Gives a running search started without a time limit the given
+     * time from now on every thread.
+     *
+     * @param maxMillis the time left in milliseconds
+     */
+    public void ponderhit(long maxMillis) {
+        for (Search search : searches) {
+            search.ponderhit(maxMillis);
+        }
+    }
+
+    /**
+     * Sets the endgame tables looked up by every thread.
+     *
+     * @param tablebase the tables, or null to search every position
+     */
+    public void setTablebase(Tablebase tablebase) {
+        for (Search search : searches) {
+            search.setTablebase(tablebase);
+        }
+    }
+
+    /**
+     * Sets the listener told about every iteration the main thread
+     * completes, with the nodes of every thread.
+     *
+     * @param listener the listener, or null for none
+     */
+    public void setListener(SearchListener listener) {
+        if (listener == null) {
+            searches[0].setListener(null);
+            return;
+        }
+        searches[0].setListener(result -> {
+            long nodes = 0;
+            for (Search search : searches) {
+                nodes += search.getNodes();
+            }
+            listener.iteration(new SearchResult(result.getScore(), result.getDepth(), nodes,
+                    result.getMillis(), result.getPv()));
+        });
+    }
+
+    /**
+     * Stops the threads of the pool once no search is running.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,250 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * Perft counts the positions reached by playing every legal move to a
+ * fixed depth. The counts of well known positions are published, so
+ * comparing against them checks the move generator, and the time it
+ * takes measures its speed.
+ *
+ * Usage:
+ *   java chess.Perft                        checks the standard positions
+ *   java chess.Perft depth [fen]            counts one position
+ *   java chess.Perft divide depth [fen]     counts per root move
+ *   java chess.Perft check depth [fen]      checks the incremental state
+ *
+ * The check mode walks the tree of one position, or of every standard
+ * position, and after every move made and taken back compares the
+ * hash and the evaluation the Position keeps up to date with the same
+ * values computed from scratch.
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public class Perft {
+    //
+    // Standard test positions and their published counts from depth 1
+    //
+    private static final String[] SUITE_FENS = {
+        Fen.START,
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+        "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+        "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+        "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+    };
+    private static final long[][] SUITE_COUNTS = {
+        {20, 400, 8902, 197281, 4865609},
+        {48, 2039, 97862, 4085603},
+        {14, 191, 2812, 43238, 674624, 11030083},
+        {6, 264, 9467, 422333},
+        {44, 1486, 62379, 2103487},
+        {46, 2079, 89890, 3894594},
+    };
+    private final MoveList[] lists;
+
+    /**
+     * Constructor for a Perft counter.
+     */
+    public Perft() {
+        lists = new MoveList[Search.MAX_PLY];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = new MoveList();
+        }
+    }
+
+    /**
+     * main runs the standard suite, counts one position, or
+     * divides the count of one position by root move.
+     *
+     * @param args the mode, depth and position as described above
+     */
+    public static void main(String[] args) {
+        Perft perft = new Perft();
+        if (args.length == 0) {
+            System.exit(perft.suite() ? 0 : 1);
+        }
+        boolean divide = args[0].equals("divide");
+        boolean check = args[0].equals("check");
+        int first = divide || check ? 1 : 0;
+        int depth = Integer.parseInt(args[first]);
+        String fen = Fen.START;
+        if (args.length > first + 1) {
+            fen = String.join(" ", Arrays.copyOfRange(args, first + 1, args.length));
+        } else if (check) {
+            System.exit(perft.checkSuite(depth) ? 0 : 1);
+        }
+        if (check) {
+            System.exit(perft.check(Fen.parse(fen), depth) ? 0 : 1);
+        }
+        Position position = Fen.parse(fen);
+        long start = System.nanoTime();
+        long nodes = divide ? perft.divide(position, depth) : perft.count(position, depth);
+        report(nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * Counts the positions reached after depth plies of legal moves.
+     *
+     * @param position the Position to count from, left unchanged
+     * @param depth the number of plies
+     * @return the number of positions
+     */
+    public long count(Position position, int depth) {
+        return count(position, depth, 0);
+    }
+
+    /**
+     * Counts the positions reached after depth plies and prints
+     * the count below every legal root move.
+     *
+     * @param position the Position to count from, left unchanged
+     * @param depth the number of plies, at least 1
+     * @return the number of positions
+     */
+    public long divide(Position position, int depth) {
+        MoveList moves = lists[0];
+        moves.clear();
+        position.generateLegalMoves(moves);
+        long total = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            position.makeMove(move);
+            long nodes = count(position, depth - 1, 1);
+            position.unmakeMove(move);
+            System.out.println(Move.name(move) + ": " + nodes);
+            total += nodes;
+        }
+        System.out.println("moves: " + moves.size());
+        return total;
+    }
+
+    //
+    // Counts the leaves below the position, using the move list of the ply.
+    // At the last ply the legal moves are counted without being made.
+    //
+    private long count(Position position, int depth, int ply) {
+        if (depth == 0) {
+            return 1;
+        }
+        MoveList moves = lists[ply];
+        moves.clear();
+        position.generateLegalMoves(moves);
+        if (depth == 1) {
+            return moves.size();
+        }
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            position.makeMove(move);
+            nodes += count(position, depth - 1, ply + 1);
+            position.unmakeMove(move);
+        }
+        return nodes;
+    }
+
+    /**
+     * Checks the incrementally updated state of the Position against
+     * a recomputation in every position up to depth plies away, and
+     * prints the first one that differs.
+     *
+     * @param position the Position to check from, left unchanged
+     * @param depth the number of plies
+     * @return if every position matched
+     */
+    public boolean check(Position position, int depth) {
+        long start = System.nanoTime();
+        try {
+            long nodes = check(position, depth, 0);
+            System.out.println("all positions match");
+            report(nodes, System.nanoTime() - start);
+            return true;
+        } catch (IllegalStateException exc) {
+            System.out.println("FAIL " + exc.getMessage());
+            return false;
+        }
+    }
+
+    //
+    // Checks every standard position to the given depth
+    //
+    private boolean checkSuite(int depth) {
+        boolean passed = true;
+        for (String fen : SUITE_FENS) {
+            passed &= check(Fen.parse(fen), depth);
+        }
+        return passed;
+    }
+
+    //
+    // Checks the position and, after every move made and taken back,
+    // the positions below it. Throws IllegalStateException naming the
+    // first position that differs.
+    //
+    private long check(Position position, int depth, int ply) {
+        verify(position);
+        if (depth == 0) {
+            return 1;
+        }
+        MoveList moves = lists[ply];
+        moves.clear();
+        position.generateLegalMoves(moves);
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            position.makeMove(move);
+            nodes += check(position, depth - 1, ply + 1);
+            position.unmakeMove(move);
+            verify(position);
+        }
+        return nodes;
+    }
+
+    //
+    // Compares the state the Position keeps up to date with the same
+    // state computed from scratch
+    //
+    private static void verify(Position position) {
+        if (position.getHash() != Zobrist.hash(position)) {
+            throw new IllegalStateException("hash differs in " + Fen.toFen(position));
+        }
+        if (Evaluation.evaluate(position) != Evaluation.evaluateFull(position)) {
+            throw new IllegalStateException("evaluation differs in " + Fen.toFen(position));
+        }
+    }
+
+    //
+    // Runs every standard position to the deepest published count and
+    // reports whether the counts match
+    //
+    private boolean suite() {
+        boolean passed = true;
+        long nodes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < SUITE_FENS.length; i++) {
+            Position position = Fen.parse(SUITE_FENS[i]);
+            for (int depth = 1; depth <= SUITE_COUNTS[i].length; depth++) {
+                long count = count(position, depth);
+                long expected = SUITE_COUNTS[i][depth - 1];
+                nodes += count;
+                if (count != expected) {
+                    passed = false;
+                    System.out.println("FAIL " + SUITE_FENS[i] + " depth " + depth
+                            + ": " + count + " expected " + expected);
+                }
+            }
+        }
+        System.out.println(passed ? "all counts match" : "counts differ");
+        report(nodes, System.nanoTime() - start);
+        return passed;
+    }
+
+    //
+    // Prints a node count and its speed
+    //
+    private static void report(long nodes, long nanos) {
+        System.out.printf("nodes: %d  time: %d ms  nodes/s: %.0f%n",
+                nodes, nanos / 1000000, nodes * 1e9 / Math.max(1, nanos));
+    }
+}
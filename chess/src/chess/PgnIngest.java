@@ -0,0 +1,205 @@
+package chess;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PgnIngest reads large PGN archives with every core. The file is
+ * memory-mapped a piece at a time and cut into chunks at game
+ * boundaries, which are the tag lines following a blank line. Each
+ * chunk is parsed by its own PgnReader on a worker thread, so every
+ * move is checked against the legal moves, and the games are replayed
+ * into a GameConsumer. Only a few chunks are in memory at once, so
+ * archives of any size can be read.
+ *
+ * Games with an illegal move are counted as errors and skipped.
+ *
+ * Usage: java chess.PgnIngest file [threads]
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public class PgnIngest {
+    //
+    // Bytes in a chunk handed to one worker, grown for larger games
+    //
+    private static final int CHUNK_BYTES = 4 << 20;
+    private final int threads;
+    private final GameConsumer consumer;
+    private final AtomicLong games = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong plies = new AtomicLong();
+    private long millis;
+
+    /**
+     * Constructor for a PgnIngest.
+     *
+     * @param threads the number of parsing threads, at least 1
+     * @param consumer the consumer receiving every legal game
+     */
+    public PgnIngest(int threads, GameConsumer consumer) {
+        this.threads = Math.max(1, threads);
+        this.consumer = consumer;
+    }
+
+    /**
+     * main reads a PGN file, checking every game, and reports the
+     * number of games and how fast they were read.
+     *
+     * @param args the file and the number of threads
+     * @throws Exception if the file cannot be read
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Usage: java chess.PgnIngest file [threads]");
+            return;
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        PgnIngest ingest = new PgnIngest(threads, new GameConsumer() { });
+        ingest.ingest(Paths.get(args[0]));
+        ingest.report();
+    }
+
+    /**
+     * Reads every game of a PGN file and returns once all of them have
+     * been given to the consumer.
+     *
+     * @param file the PGN file
+     * @throws IOException if the file cannot be read or the consumer fails
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void ingest(Path file) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        // bounds the chunks mapped and waiting for a worker
+        Semaphore slots = new Semaphore(threads * 2);
+        List<Future<?>> tasks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long offset = 0;
+            int window = CHUNK_BYTES;
+            while (offset < size) {
+                long length = Math.min(window, size - offset);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                int end = offset + length == size ? (int) length : lastBoundary(mapped);
+                if (end <= 0) {
+                    // a single game longer than the window
+                    window *= 2;
+                    continue;
+                }
+                mapped.limit(end);
+                slots.acquire();
+                tasks.add(pool.submit(() -> {
+                    try {
+                        parse(StandardCharsets.UTF_8.decode(mapped).toString());
+                        return null;
+                    } finally {
+                        slots.release();
+                    }
+                }));
+                offset += end;
+                window = CHUNK_BYTES;
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (ExecutionException exc) {
+            throw new IOException("Reading " + file + " failed", exc.getCause());
+        } finally {
+            pool.shutdownNow();
+            millis = (System.nanoTime() - start) / 1000000;
+        }
+    }
+
+    /**
+     * Gets the number of legal games read.
+     *
+     * @return the number of games
+     */
+    public long getGames() {
+        return games.get();
+    }
+
+    /**
+     * Gets the number of games skipped because of an illegal move or
+     * a bad starting position.
+     *
+     * @return the number of games
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Gets the number of moves in the legal games read.
+     *
+     * @return the number of plies
+     */
+    public long getPlies() {
+        return plies.get();
+    }
+
+    /**
+     * Prints the counts of the last ingest and its games per second.
+     */
+    public void report() {
+        System.out.printf("games: %d  errors: %d  plies: %d  time: %d ms  games/s: %.0f%n",
+                getGames(), getErrors(), getPlies(), millis, getGames() * 1000.0 / Math.max(1, millis));
+    }
+
+    //
+    // Parses the games of one chunk and replays them into the consumer
+    //
+    private void parse(String text) throws IOException {
+        PgnReader reader = new PgnReader(new StringReader(text));
+        while (true) {
+            Game game;
+            try {
+                game = reader.next();
+            } catch (IllegalArgumentException exc) {
+                errors.incrementAndGet();
+                continue;
+            }
+            if (game == null) {
+                return;
+            }
+            Position position = game.startPosition();
+            for (int i = 0; i < game.getMoveCount(); i++) {
+                int move = game.getMove(i);
+                consumer.position(game, position, move);
+                position.makeMove(move);
+            }
+            consumer.game(game);
+            games.incrementAndGet();
+            plies.addAndGet(game.getMoveCount());
+        }
+    }
+
+    //
+    // Finds the last game boundary of a mapped window: a '[' starting
+    // a line after a blank line. Returns 0 if there is none.
+    //
+    private static int lastBoundary(MappedByteBuffer mapped) {
+        for (int i = mapped.limit() - 1; i >= 2; i--) {
+            if (mapped.get(i) == '[' && mapped.get(i - 1) == '\n'
+                    && (mapped.get(i - 2) == '\n' || (i >= 3 && mapped.get(i - 2) == '\r' && mapped.get(i - 3) == '\n'))) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,274 @@
+package chess;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * PgnReader reads games in Portable Game Notation one at a time from a
+ * stream of text, so files of any size can be read without loading
+ * them whole. Every move is checked against the legal moves of the
+ * position it is played in.
+ *
+ * Comments, variations, numeric annotations and move numbers are
+ * skipped. A game ends at its result, or where the tags of the next
+ * game start. When a game has an illegal move the rest of it is still
+ * read, so the next call continues with the following game.
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public class PgnReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private final StringBuilder token = new StringBuilder();
+    private final San san = new San();
+    private final Position position = new Position();
+
+    /**
+     * Constructor for a PgnReader reading from a stream of text.
+     *
+     * @param in the text to read, closed with this reader
+     */
+    public PgnReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the next game.
+     *
+     * @return the Game, or null if there are no more games
+     * @throws IOException if the text cannot be read
+     * @throws IllegalArgumentException if the game has a bad starting
+     *         position or an illegal move, after the whole game has been read
+     */
+    public Game next() throws IOException {
+        Game game = new Game();
+        if (!readTags(game)) {
+            return null;
+        }
+        String fen = game.getTag("FEN");
+        if (fen != null) {
+            game.setStartFen(fen);
+        }
+        IllegalArgumentException error = null;
+        try {
+            Fen.parse(game.getStartFen(), position);
+        } catch (IllegalArgumentException exc) {
+            error = exc;
+        }
+        while (readToken()) {
+            if (isResult(token)) {
+                game.setResult(token.toString());
+                break;
+            }
+            int start = skipMoveNumber(token);
+            if (start == token.length() || error != null) {
+                continue;
+            }
+            try {
+                int move = san.parse(position, token.subSequence(start, token.length()));
+                position.makeMove(move);
+                game.addMove(move);
+            } catch (IllegalArgumentException exc) {
+                error = new IllegalArgumentException(exc.getMessage() + " after "
+                        + game.getMoveCount() + " plies of " + describe(game), exc);
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+        return game;
+    }
+
+    /**
+     * Closes the text being read.
+     *
+     * @throws IOException if it cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    //
+    // Reads the tag pairs before the moves of a game. Returns false at
+    // the end of the text if there is no game left.
+    //
+    private boolean readTags(Game game) throws IOException {
+        while (true) {
+            int c = skipSpaces();
+            if (c < 0) {
+                return !game.getTags().isEmpty();
+            }
+            if (c != '[') {
+                return true;
+            }
+            pos++;
+            token.setLength(0);
+            while ((c = peek()) >= 0 && !Character.isWhitespace(c) && c != '"' && c != ']') {
+                token.append((char) c);
+                pos++;
+            }
+            String name = token.toString();
+            skipSpaces();
+            token.setLength(0);
+            if (peek() == '"') {
+                pos++;
+                while ((c = read()) >= 0 && c != '"') {
+                    if (c == '\\') {
+                        c = read();
+                    }
+                    if (c >= 0) {
+                        token.append((char) c);
+                    }
+                }
+            }
+            while ((c = read()) >= 0 && c != ']' && c != '\n') {
+                continue;
+            }
+            if (!name.isEmpty()) {
+                game.setTag(name, token.toString());
+            }
+        }
+    }
+
+    //
+    // Reads the next move text token into token, skipping comments,
+    // variations and annotations. Returns false at the end of the game.
+    //
+    private boolean readToken() throws IOException {
+        while (true) {
+            int c = skipSpaces();
+            if (c < 0 || c == '[') {
+                return false;
+            }
+            if (c == '{') {
+                skipPast('}');
+            } else if (c == ';') {
+                skipPast('\n');
+            } else if (c == '(') {
+                skipVariation();
+            } else if (c == '$') {
+                pos++;
+                while ((c = peek()) >= '0' && c <= '9') {
+                    pos++;
+                }
+            } else if (c == ')' || c == '}') {
+                pos++;
+            } else {
+                token.setLength(0);
+                while ((c = peek()) >= 0 && !Character.isWhitespace(c) && "{}();[$".indexOf(c) < 0) {
+                    token.append((char) c);
+                    pos++;
+                }
+                return true;
+            }
+        }
+    }
+
+    //
+    // Skips a variation with any variations and comments nested in it
+    //
+    private void skipVariation() throws IOException {
+        int depth = 0;
+        int c;
+        while ((c = read()) >= 0) {
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return;
+            } else if (c == '{') {
+                skipPast('}');
+            } else if (c == ';') {
+                skipPast('\n');
+            }
+        }
+    }
+
+    //
+    // Skips up to and including the given character
+    //
+    private void skipPast(char end) throws IOException {
+        int c;
+        while ((c = read()) >= 0 && c != end) {
+            continue;
+        }
+    }
+
+    //
+    // Skips white space and returns the next character without reading it
+    //
+    private int skipSpaces() throws IOException {
+        int c;
+        while ((c = peek()) >= 0 && Character.isWhitespace(c)) {
+            pos++;
+        }
+        return c;
+    }
+
+    //
+    // Returns the next character without reading it, or -1 at the end
+    //
+    private int peek() throws IOException {
+        if (pos == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[pos];
+    }
+
+    //
+    // Reads the next character, or -1 at the end
+    //
+    private int read() throws IOException {
+        int c = peek();
+        if (c >= 0) {
+            pos++;
+        }
+        return c;
+    }
+
+    //
+    // Gets the index after a move number such as "12." or "12..."
+    // at the start of a token
+    //
+    private static int skipMoveNumber(CharSequence text) {
+        int i = 0;
+        while (i < text.length() && Character.isDigit(text.charAt(i))) {
+            i++;
+        }
+        if (i < text.length() && text.charAt(i) != '.') {
+            return 0;
+        }
+        while (i < text.length() && text.charAt(i) == '.') {
+            i++;
+        }
+        return i;
+    }
+
+    //
+    // Checks if a token is a game result
+    //
+    private static boolean isResult(CharSequence text) {
+        return "1-0".contentEquals(text) || "0-1".contentEquals(text)
+                || "1/2-1/2".contentEquals(text) || Game.UNKNOWN.contentEquals(text);
+    }
+
+    //
+    // Names a game by its players for error messages
+    //
+    private static String describe(Game game) {
+        if (game.getTag("White") != null && game.getTag("Black") != null) {
+            return game.getTag("White") + " - " + game.getTag("Black");
+        }
+        return game.getTag("Event") != null ? game.getTag("Event") : "a game";
+    }
+}
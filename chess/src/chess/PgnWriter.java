@@ -0,0 +1,133 @@
+package chess;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * PgnWriter writes games in Portable Game Notation, the export format
+ * read by other chess tools. The seven standard tags come first, with
+ * "?" for the unknown ones, and the moves are written in Standard
+ * Algebraic Notation on lines of at most 80 characters.
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public class PgnWriter implements Closeable {
+    private static final String[] ROSTER = {"Event", "Site", "Date", "Round", "White", "Black", "Result"};
+    private static final int LINE_LENGTH = 80;
+    private final Writer out;
+    private final San san = new San();
+    private final StringBuilder line = new StringBuilder(LINE_LENGTH + 10);
+
+    /**
+     * Constructor for a PgnWriter writing to a stream of text.
+     *
+     * @param out the text to write, closed with this writer
+     */
+    public PgnWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes a game followed by a blank line.
+     *
+     * @param game the Game to write
+     * @throws IOException if the text cannot be written
+     */
+    public void write(Game game) throws IOException {
+        for (String name : ROSTER) {
+            String value = name.equals("Result") ? game.getResult() : game.getTag(name);
+            if (value == null) {
+                value = name.equals("Date") ? "????.??.??" : "?";
+            }
+            writeTag(name, value);
+        }
+        boolean setUp = !game.getStartFen().equals(Fen.START);
+        if (setUp) {
+            writeTag("SetUp", "1");
+            writeTag("FEN", game.getStartFen());
+        }
+        for (Map.Entry<String, String> tag : game.getTags().entrySet()) {
+            String name = tag.getKey();
+            if (!isRoster(name) && !(setUp && (name.equals("SetUp") || name.equals("FEN")))) {
+                writeTag(name, tag.getValue());
+            }
+        }
+        out.write('\n');
+        Position position = game.startPosition();
+        line.setLength(0);
+        for (int i = 0; i < game.getMoveCount(); i++) {
+            int move = game.getMove(i);
+            if (position.getSideToMove() == Piece.WHITE) {
+                word(position.getFullmoveNumber() + ".");
+            } else if (i == 0) {
+                word(position.getFullmoveNumber() + "...");
+            }
+            word(san.toSan(position, move));
+            position.makeMove(move);
+        }
+        word(game.getResult());
+        out.write(line.toString());
+        out.write("\n\n");
+    }
+
+    /**
+     * Flushes the text written so far.
+     *
+     * @throws IOException if it cannot be flushed
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Closes the text being written.
+     *
+     * @throws IOException if it cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    //
+    // Writes one tag pair, escaping quotes and backslashes in the value
+    //
+    private void writeTag(String name, String value) throws IOException {
+        out.write('[');
+        out.write(name);
+        out.write(" \"");
+        out.write(value.replace("\\", "\\\\").replace("\"", "\\\""));
+        out.write("\"]\n");
+    }
+
+    //
+    // Adds a word of the move text, starting a new line when the
+    // current one would get too long
+    //
+    private void word(String word) throws IOException {
+        if (line.length() > 0 && line.length() + 1 + word.length() > LINE_LENGTH) {
+            out.write(line.toString());
+            out.write('\n');
+            line.setLength(0);
+        }
+        if (line.length() > 0) {
+            line.append(' ');
+        }
+        line.append(word);
+    }
+
+    //
+    // Checks if a tag is one of the seven standard tags
+    //
+    private static boolean isRoster(String name) {
+        for (String roster : ROSTER) {
+            if (roster.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,101 @@
+package chess;
+
+/**
+ * Piece holds the integer codes used by the headless game model to
+ * describe chess pieces. A piece code packs the type of the piece in
+ * the low three bits and its color in the fourth bit so it fits in a
+ * nibble, with 0 meaning an empty square.
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public final class Piece {
+    /**
+     * Code of an empty square.
+     */
+    public static final int EMPTY = 0;
+    public static final int PAWN = 1;
+    public static final int KNIGHT = 2;
+    public static final int BISHOP = 3;
+    public static final int ROOK = 4;
+    public static final int QUEEN = 5;
+    public static final int KING = 6;
+    /**
+     * Color of the first player, whose pieces start on rows 0 and 1.
+     */
+    public static final int WHITE = 0;
+    /**
+     * Color of the second player, whose pieces start on rows 6 and 7.
+     */
+    public static final int BLACK = 1;
+    private static final String[] NAMES = {"", "pawn", "knight", "bishop", "rook", "queen", "king"};
+
+    private Piece() {
+    }
+
+    /**
+     * Builds the code of a piece from its color and type.
+     *
+     * @param color WHITE or BLACK
+     * @param type the type of the piece from PAWN to KING
+     * @return the piece code
+     */
+    public static int make(int color, int type) {
+        return type | (color << 3);
+    }
+
+    /**
+     * Gets the type of a piece code.
+     *
+     * @param piece the piece code
+     * @return the type from PAWN to KING, or EMPTY
+     */
+    public static int type(int piece) {
+        return piece & 7;
+    }
+
+    /**
+     * Gets the color of a piece code. Only meaningful for non empty codes.
+     *
+     * @param piece the piece code
+     * @return WHITE or BLACK
+     */
+    public static int color(int piece) {
+        return piece >>> 3;
+    }
+
+    /**
+     * Converts the String representation used by the ChessPiece
+     * classes, such as "wpawn" or "bking", into a piece code.
+     *
+     * @param name the String representation of the piece
+     * @return the piece code, or EMPTY if the name is not a piece
+     */
+    public static int valueOf(String name) {
+        if (name == null || name.length() < 2) {
+            return EMPTY;
+        }
+        int color = Character.toLowerCase(name.charAt(0)) == 'w' ? WHITE : BLACK;
+        String type = name.substring(1);
+        for (int i = PAWN; i <= KING; i++) {
+            if (NAMES[i].equalsIgnoreCase(type)) {
+                return make(color, i);
+            }
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Converts a piece code into the String representation used by
+     * the ChessPiece classes.
+     *
+     * @param piece the piece code
+     * @return the String representation, or "" for an empty square
+     */
+    public static String name(int piece) {
+        if (piece == EMPTY) {
+            return "";
+        }
+        return (color(piece) == WHITE ? "w" : "b") + NAMES[type(piece)];
+    }
+}
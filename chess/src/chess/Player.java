@@ -40,6 +40,20 @@ public class Player implements Serializable {
         piecesMap = new HashMap<>();
     }
 
+    /**
+     * Constructor for a Player object with a known color, for
+     * players of a game that was saved.
+     *
+     * @param name The name of the Player
+     * @param color The color of the Player, "WHITE" or "BLACK"
+     */
+    public Player(String name, String color) {
+        this.name = name;
+        this.color = color;
+        playersYet = true;
+        piecesMap = new HashMap<>();
+    }
+
     public void addPiece(ChessPiece cp) {
         piecesMap.put(cp.getName(), cp);
     }
@@ -0,0 +1,1012 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * Position is the headless state of a game of chess: the placement of
+ * every piece, the color whose turn it is, castling and en passant
+ * rights and the move counters. It generates and applies moves without
+ * any dependency on the Swing classes so games can be searched,
+ * validated and replayed without a display.
+ *
+ * Squares are numbered from 0 to 63 as y * 8 + x using the same
+ * coordinates as the tiles of the Board. Besides the piece on every
+ * square the Position keeps a bitboard for every piece code and color
+ * so moves can be generated with the tables in Bitboards, and a
+ * Zobrist hash that every change to the Position keeps up to date.
+ *
+ * Moves are made and taken back in place with makeMove and unmakeMove.
+ * The state a move cannot be replayed from, such as castling rights,
+ * the en passant square and the halfmove clock, is pushed on a history
+ * stack so a search can explore a line and restore the Position exactly
+ * without copying it.
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public class Position {
+    /**
+     * Number of squares on the board.
+     */
+    public static final int SQUARES = 64;
+    /**
+     * The value used when there is no en passant square.
+     */
+    public static final int NO_SQUARE = -1;
+    /**
+     * Castling right of white towards x = 7.
+     */
+    public static final int WHITE_KINGSIDE = 1;
+    /**
+     * Castling right of white towards x = 0.
+     */
+    public static final int WHITE_QUEENSIDE = 2;
+    /**
+     * Castling right of black towards x = 7.
+     */
+    public static final int BLACK_KINGSIDE = 4;
+    /**
+     * Castling right of black towards x = 0.
+     */
+    public static final int BLACK_QUEENSIDE = 8;
+    private static final int[] BACK_ROW = {Piece.ROOK, Piece.KNIGHT, Piece.BISHOP, Piece.QUEEN,
+        Piece.KING, Piece.BISHOP, Piece.KNIGHT, Piece.ROOK};
+    private static final int HISTORY_CAPACITY = 256;
+    //
+    // Squares of the same color as h1
+    //
+    private static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL;
+    private static final long PROMOTION_ROWS = 0xFF000000000000FFL;
+    private static final int[] PROMOTIONS = {Piece.QUEEN, Piece.ROOK, Piece.BISHOP, Piece.KNIGHT};
+    //
+    // Castling rights kept when a piece moves from or to each square
+    //
+    private static final int[] CASTLING_MASK = new int[SQUARES];
+
+    static {
+        for (int sq = 0; sq < SQUARES; sq++) {
+            CASTLING_MASK[sq] = 15;
+        }
+        CASTLING_MASK[0] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[4] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[7] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[56] &= ~BLACK_QUEENSIDE;
+        CASTLING_MASK[60] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[63] &= ~BLACK_KINGSIDE;
+    }
+
+    private int[] squares;
+    private long[] pieceBits;
+    private long[] colorBits;
+    private long occupied;
+    private int sideToMove;
+    private int castling;
+    private int epSquare;
+    private int halfmoveClock;
+    private int fullmoveNumber;
+    private long hash;
+    private int middlegame;
+    private int endgame;
+    private int phase;
+    private long[] hashHistory;
+    private int[] stateHistory;
+    private int historyLength;
+
+    /**
+     * Constructor for an empty Position with white to move.
+     */
+    public Position() {
+        squares = new int[SQUARES];
+        pieceBits = new long[16];
+        colorBits = new long[2];
+        sideToMove = Piece.WHITE;
+        epSquare = NO_SQUARE;
+        fullmoveNumber = 1;
+        hash = Zobrist.CASTLING[0];
+        hashHistory = new long[HISTORY_CAPACITY];
+        stateHistory = new int[HISTORY_CAPACITY];
+    }
+
+    /**
+     * Creates the Position at the very beginning of a game.
+     *
+     * @return the starting Position
+     */
+    public static Position startPosition() {
+        Position start = new Position();
+        for (int x = 0; x < 8; x++) {
+            start.setPiece(x, 0, Piece.make(Piece.WHITE, BACK_ROW[x]));
+            start.setPiece(x, 1, Piece.make(Piece.WHITE, Piece.PAWN));
+            start.setPiece(x, 6, Piece.make(Piece.BLACK, Piece.PAWN));
+            start.setPiece(x, 7, Piece.make(Piece.BLACK, BACK_ROW[x]));
+        }
+        start.initCastling();
+        return start;
+    }
+
+    /**
+     * Empties this Position and its move history without allocating,
+     * leaving white to move.
+     */
+    public void clear() {
+        Arrays.fill(squares, Piece.EMPTY);
+        Arrays.fill(pieceBits, 0L);
+        Arrays.fill(colorBits, 0L);
+        occupied = 0L;
+        sideToMove = Piece.WHITE;
+        castling = 0;
+        epSquare = NO_SQUARE;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        hash = Zobrist.CASTLING[0];
+        middlegame = 0;
+        endgame = 0;
+        phase = 0;
+        historyLength = 0;
+    }
+
+    /**
+     * Creates a copy of this Position.
+     *
+     * @return the copy
+     */
+    public Position copy() {
+        Position copy = new Position();
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * Overwrites this Position with the state of another one without
+     * allocating, so a search can keep a Position per ply.
+     *
+     * @param other the Position to copy
+     */
+    public void copyFrom(Position other) {
+        System.arraycopy(other.squares, 0, squares, 0, SQUARES);
+        System.arraycopy(other.pieceBits, 0, pieceBits, 0, pieceBits.length);
+        System.arraycopy(other.colorBits, 0, colorBits, 0, colorBits.length);
+        occupied = other.occupied;
+        sideToMove = other.sideToMove;
+        castling = other.castling;
+        epSquare = other.epSquare;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        hash = other.hash;
+        middlegame = other.middlegame;
+        endgame = other.endgame;
+        phase = other.phase;
+        if (hashHistory.length < other.historyLength) {
+            hashHistory = new long[other.hashHistory.length];
+            stateHistory = new int[other.stateHistory.length];
+        }
+        System.arraycopy(other.hashHistory, 0, hashHistory, 0, other.historyLength);
+        System.arraycopy(other.stateHistory, 0, stateHistory, 0, other.historyLength);
+        historyLength = other.historyLength;
+    }
+
+    /**
+     * Gets the square number of the given coordinates.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @return the square number
+     */
+    public static int square(int x, int y) {
+        return (y << 3) | x;
+    }
+
+    /**
+     * Gets the piece code on the given coordinates.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @return the piece code, or Piece.EMPTY
+     */
+    public int getPiece(int x, int y) {
+        return squares[square(x, y)];
+    }
+
+    /**
+     * Gets the piece code on the given square.
+     *
+     * @param square the square number
+     * @return the piece code, or Piece.EMPTY
+     */
+    public int getPiece(int square) {
+        return squares[square];
+    }
+
+    /**
+     * Places a piece on the given coordinates, replacing whatever was there.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param piece the piece code, or Piece.EMPTY to clear the square
+     */
+    public void setPiece(int x, int y, int piece) {
+        int sq = square(x, y);
+        if (squares[sq] != Piece.EMPTY) {
+            remove(sq);
+        }
+        if (piece != Piece.EMPTY) {
+            put(sq, piece);
+        }
+    }
+
+    /**
+     * Gets the squares holding the given piece code.
+     *
+     * @param piece the piece code
+     * @return the bitboard of the squares
+     */
+    public long getPieces(int piece) {
+        return pieceBits[piece];
+    }
+
+    /**
+     * Gets the squares holding pieces of the given color.
+     *
+     * @param color Piece.WHITE or Piece.BLACK
+     * @return the bitboard of the squares
+     */
+    public long getColorPieces(int color) {
+        return colorBits[color];
+    }
+
+    /**
+     * Gets every occupied square.
+     *
+     * @return the bitboard of the squares
+     */
+    public long getOccupied() {
+        return occupied;
+    }
+
+    /**
+     * Gets the color whose turn it is.
+     *
+     * @return Piece.WHITE or Piece.BLACK
+     */
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * Sets the color whose turn it is.
+     *
+     * @param color Piece.WHITE or Piece.BLACK
+     */
+    public void setSideToMove(int color) {
+        if (color != sideToMove) {
+            hash ^= Zobrist.SIDE;
+        }
+        sideToMove = color;
+    }
+
+    /**
+     * Gets the Zobrist hash of the Position.
+     *
+     * @return the hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Gets the sum of the middlegame values of every piece, kept up to
+     * date as pieces move.
+     *
+     * @return the sum, positive when white is ahead
+     */
+    public int getMiddlegame() {
+        return middlegame;
+    }
+
+    /**
+     * Gets the sum of the endgame values of every piece, kept up to
+     * date as pieces move.
+     *
+     * @return the sum, positive when white is ahead
+     */
+    public int getEndgame() {
+        return endgame;
+    }
+
+    /**
+     * Gets the game phase of the pieces on the board, from
+     * Evaluation.MAX_PHASE at the start down to 0 in a pawn endgame.
+     *
+     * @return the phase
+     */
+    public int getPhase() {
+        return phase;
+    }
+
+    /**
+     * Gets the castling rights still available.
+     *
+     * @return the rights as a combination of the castling constants
+     */
+    public int getCastling() {
+        return castling;
+    }
+
+    /**
+     * Sets the castling rights still available.
+     *
+     * @param castling the rights as a combination of the castling constants
+     */
+    public void setCastling(int castling) {
+        hash ^= Zobrist.CASTLING[this.castling] ^ Zobrist.CASTLING[castling];
+        this.castling = castling;
+    }
+
+    /**
+     * Gives every castling right whose king and rook still stand on
+     * their starting tiles, for positions set up piece by piece.
+     */
+    public void initCastling() {
+        int white = Piece.make(Piece.WHITE, Piece.ROOK);
+        int black = Piece.make(Piece.BLACK, Piece.ROOK);
+        int castling = 0;
+        if (squares[4] == Piece.make(Piece.WHITE, Piece.KING)) {
+            castling |= squares[7] == white ? WHITE_KINGSIDE : 0;
+            castling |= squares[0] == white ? WHITE_QUEENSIDE : 0;
+        }
+        if (squares[60] == Piece.make(Piece.BLACK, Piece.KING)) {
+            castling |= squares[63] == black ? BLACK_KINGSIDE : 0;
+            castling |= squares[56] == black ? BLACK_QUEENSIDE : 0;
+        }
+        setCastling(castling);
+    }
+
+    /**
+     * Gets the square a pawn can capture en passant on.
+     *
+     * @return the square, or NO_SQUARE
+     */
+    public int getEpSquare() {
+        return epSquare;
+    }
+
+    /**
+     * Sets the square a pawn can capture en passant on.
+     *
+     * @param epSquare the square, or NO_SQUARE
+     */
+    public void setEpSquare(int epSquare) {
+        if (this.epSquare != NO_SQUARE) {
+            hash ^= Zobrist.EP_COLUMN[this.epSquare & 7];
+        }
+        if (epSquare != NO_SQUARE) {
+            hash ^= Zobrist.EP_COLUMN[epSquare & 7];
+        }
+        this.epSquare = epSquare;
+    }
+
+    /**
+     * Gets the number of moves since the last capture or pawn move.
+     *
+     * @return the halfmove clock
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * Sets the number of moves since the last capture or pawn move.
+     *
+     * @param halfmoveClock the halfmove clock
+     */
+    public void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    /**
+     * Gets the number of the current full move, starting at 1 and
+     * increased after every move of black.
+     *
+     * @return the fullmove number
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /**
+     * Sets the number of the current full move.
+     *
+     * @param fullmoveNumber the fullmove number
+     */
+    public void setFullmoveNumber(int fullmoveNumber) {
+        this.fullmoveNumber = fullmoveNumber;
+    }
+
+    /**
+     * Determines if the piece of the side to move at x1,y1 can
+     * legally move to x2,y2.
+     *
+     * @param x1 x-coordinate of current tile
+     * @param y1 y-coordinate of current tile
+     * @param x2 x-coordinate of destination tile
+     * @param y2 y-coordinate of destination tile
+     * @return if the move is legal
+     */
+    public boolean canMove(int x1, int y1, int x2, int y2) {
+        return onBoard(x1, y1) && onBoard(x2, y2)
+                && findMove(square(x1, y1), square(x2, y2), Piece.QUEEN) != Move.NONE;
+    }
+
+    /**
+     * Moves a piece of the side to move from x1,y1 to x2,y2 if legal,
+     * promoting pawns to queens. If the move is not legal then nothing
+     * happens.
+     *
+     * @param x1 x-coordinate of current tile
+     * @param y1 y-coordinate of current tile
+     * @param x2 x-coordinate of destination tile
+     * @param y2 y-coordinate of destination tile
+     * @return if the move was made
+     */
+    public boolean movePiece(int x1, int y1, int x2, int y2) {
+        if (!canMove(x1, y1, x2, y2)) {
+            return false;
+        }
+        makeMove(findMove(square(x1, y1), square(x2, y2), Piece.QUEEN));
+        return true;
+    }
+
+    /**
+     * Finds the move of the side to move between two squares.
+     *
+     * @param from the origin square
+     * @param to the destination square
+     * @param promotion the type to promote to if the move is a promotion
+     * @return the packed move, or Move.NONE if it is not legal
+     */
+    public int findMove(int from, int to, int promotion) {
+        MoveList list = new MoveList();
+        generateLegalMoves(list);
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+            if (Move.from(move) == from && Move.to(move) == to
+                    && (Move.promotion(move) == Piece.EMPTY || Move.promotion(move) == promotion)) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Adds every move of the side to move to the list, including
+     * castling, en passant and promotions. A move may still leave the
+     * king of the side to move attacked.
+     *
+     * @param list the list to add the moves to
+     */
+    public void generateMoves(MoveList list) {
+        long pieces = colorBits[sideToMove];
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            int piece = squares[from];
+            if (Piece.type(piece) == Piece.PAWN) {
+                addPawnMoves(list, piece, from, -1L);
+                continue;
+            }
+            long targets = targets(piece, from);
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                list.add(Move.make(from, to, piece, squares[to], Piece.EMPTY, Move.NORMAL));
+            }
+        }
+        addCastling(list);
+    }
+
+    /**
+     * Adds the captures and promotions of the side to move to the list,
+     * the moves that change the material. Like generateMoves, a move may
+     * still leave the king of the side to move attacked.
+     *
+     * @param list the list to add the moves to
+     */
+    public void generateCaptures(MoveList list) {
+        long enemies = colorBits[sideToMove ^ 1];
+        // pawns also go to the en passant square and the last rows
+        long pawnMask = enemies | PROMOTION_ROWS | (epSquare == NO_SQUARE ? 0L : 1L << epSquare);
+        long pieces = colorBits[sideToMove];
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            int piece = squares[from];
+            if (Piece.type(piece) == Piece.PAWN) {
+                addPawnMoves(list, piece, from, pawnMask);
+                continue;
+            }
+            long targets = targets(piece, from) & enemies;
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                list.add(Move.make(from, to, piece, squares[to], Piece.EMPTY, Move.NORMAL));
+            }
+        }
+    }
+
+    /**
+     * Adds every legal move of the side to move to the list. Only moves
+     * that keep the king safe are generated: the king steps to squares
+     * no enemy attacks, a check is answered by capturing or blocking
+     * the single checker, and a pinned piece only moves along its pin.
+     *
+     * @param list the list to add the moves to
+     */
+    public void generateLegalMoves(MoveList list) {
+        int us = sideToMove;
+        int them = us ^ 1;
+        int king = kingSquare(us);
+        if (king == NO_SQUARE) {
+            generateMoves(list);
+            return;
+        }
+        long own = colorBits[us];
+        long enemies = colorBits[them];
+        // the king is lifted so it cannot hide behind itself from a slider
+        int kingPiece = squares[king];
+        long withoutKing = occupied ^ (1L << king);
+        long steps = Bitboards.KING_ATTACKS[king] & ~own;
+        while (steps != 0) {
+            int to = Long.numberOfTrailingZeros(steps);
+            steps &= steps - 1;
+            if ((attackersTo(to, withoutKing) & enemies) == 0) {
+                list.add(Move.make(king, to, kingPiece, squares[to], Piece.EMPTY, Move.NORMAL));
+            }
+        }
+        long checkers = checkers();
+        if (Long.bitCount(checkers) > 1) {
+            return;
+        }
+        long allowed = checkers == 0 ? ~own
+                : checkers | Bitboards.BETWEEN[king][Long.numberOfTrailingZeros(checkers)];
+        long pinned = pinned(us, king);
+        long epBit = epSquare == NO_SQUARE ? 0L : 1L << epSquare;
+        long pieces = own & ~(1L << king);
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            int piece = squares[from];
+            long mask = (pinned & (1L << from)) != 0 ? allowed & Bitboards.LINE[king][from] : allowed;
+            if (Piece.type(piece) == Piece.PAWN) {
+                addPawnMoves(list, piece, from, mask & ~epBit);
+                continue;
+            }
+            long targets = targets(piece, from) & mask;
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                list.add(Move.make(from, to, piece, squares[to], Piece.EMPTY, Move.NORMAL));
+            }
+        }
+        if (epBit != 0) {
+            addEnPassant(list, us);
+        }
+        if (checkers == 0) {
+            addCastling(list);
+        }
+    }
+
+    /**
+     * Gets the enemy pieces attacking the king of the side to move.
+     *
+     * @return the bitboard of the checking pieces, empty when not in check
+     */
+    public long checkers() {
+        int king = kingSquare(sideToMove);
+        return king == NO_SQUARE ? 0L : attackersTo(king, occupied) & colorBits[sideToMove ^ 1];
+    }
+
+    /**
+     * Makes a move of the side to move, updating the castling and en
+     * passant rights and the move counters, and passes the turn. The
+     * move can be taken back with unmakeMove.
+     *
+     * @param move a packed move generated for this Position
+     */
+    public void makeMove(int move) {
+        if (historyLength == hashHistory.length) {
+            hashHistory = Arrays.copyOf(hashHistory, historyLength * 2);
+            stateHistory = Arrays.copyOf(stateHistory, historyLength * 2);
+        }
+        hashHistory[historyLength] = hash;
+        stateHistory[historyLength] = castling | ((epSquare + 1) << 4) | (halfmoveClock << 11);
+        historyLength++;
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = Move.piece(move);
+        int flag = Move.flag(move);
+        if (flag == Move.EN_PASSANT) {
+            remove((from & ~7) | (to & 7));
+        } else if (Move.captured(move) != Piece.EMPTY) {
+            remove(to);
+        }
+        remove(from);
+        if (Move.promotion(move) != Piece.EMPTY) {
+            put(to, Piece.make(sideToMove, Move.promotion(move)));
+        } else {
+            put(to, piece);
+        }
+        if (flag == Move.CASTLE) {
+            int rookFrom = to > from ? from + 3 : from - 4;
+            int rookTo = (from + to) >>> 1;
+            put(rookTo, squares[rookFrom]);
+            remove(rookFrom);
+        }
+        setCastling(castling & CASTLING_MASK[from] & CASTLING_MASK[to]);
+        setEpSquare(flag == Move.DOUBLE_PUSH ? (from + to) >>> 1 : NO_SQUARE);
+        if (Piece.type(piece) == Piece.PAWN || Move.captured(move) != Piece.EMPTY) {
+            halfmoveClock = 0;
+        } else {
+            halfmoveClock++;
+        }
+        if (sideToMove == Piece.BLACK) {
+            fullmoveNumber++;
+        }
+        sideToMove ^= 1;
+        hash ^= Zobrist.SIDE;
+    }
+
+    /**
+     * Takes back the last move made, restoring the Position exactly as
+     * it was before it, including captured pieces, castling and en
+     * passant rights, the move counters and the hash.
+     *
+     * @param move the packed move last given to makeMove
+     */
+    public void unmakeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flag = Move.flag(move);
+        sideToMove ^= 1;
+        if (sideToMove == Piece.BLACK) {
+            fullmoveNumber--;
+        }
+        if (flag == Move.CASTLE) {
+            int rookFrom = to > from ? from + 3 : from - 4;
+            int rookTo = (from + to) >>> 1;
+            put(rookFrom, squares[rookTo]);
+            remove(rookTo);
+        }
+        remove(to);
+        put(from, Move.piece(move));
+        if (flag == Move.EN_PASSANT) {
+            put((from & ~7) | (to & 7), Move.captured(move));
+        } else if (Move.captured(move) != Piece.EMPTY) {
+            put(to, Move.captured(move));
+        }
+        historyLength--;
+        int state = stateHistory[historyLength];
+        castling = state & 15;
+        epSquare = ((state >>> 4) & 0x7F) - 1;
+        halfmoveClock = state >>> 11;
+        hash = hashHistory[historyLength];
+    }
+
+    /**
+     * Gets the square of the king of the given color.
+     *
+     * @param color Piece.WHITE or Piece.BLACK
+     * @return the square, or NO_SQUARE if the king is not on the board
+     */
+    public int kingSquare(int color) {
+        long king = pieceBits[Piece.make(color, Piece.KING)];
+        return king == 0 ? NO_SQUARE : Long.numberOfTrailingZeros(king);
+    }
+
+    /**
+     * Determines if the king of the given color is attacked.
+     *
+     * @param color Piece.WHITE or Piece.BLACK
+     * @return if the king is on the board and attacked
+     */
+    public boolean isInCheck(int color) {
+        int king = kingSquare(color);
+        return king != NO_SQUARE && isAttacked(king, color ^ 1);
+    }
+
+    /**
+     * Counts how many times this Position occurred before since the
+     * last capture or pawn move, for the repetition rule.
+     *
+     * @return the number of earlier occurrences
+     */
+    public int repetitions() {
+        int count = 0;
+        int first = Math.max(0, historyLength - halfmoveClock);
+        for (int i = historyLength - 2; i >= first; i -= 2) {
+            if (hashHistory[i] == hash) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Determines if neither side has the pieces left to mate: bare
+     * kings, a single minor piece, or only bishops on one square color.
+     *
+     * @return if the game is drawn for lack of material
+     */
+    public boolean isInsufficientMaterial() {
+        long heavy = 0L;
+        for (int color = Piece.WHITE; color <= Piece.BLACK; color++) {
+            heavy |= pieceBits[Piece.make(color, Piece.PAWN)] | pieceBits[Piece.make(color, Piece.ROOK)]
+                    | pieceBits[Piece.make(color, Piece.QUEEN)];
+        }
+        if (heavy != 0) {
+            return false;
+        }
+        long knights = pieceBits[Piece.make(Piece.WHITE, Piece.KNIGHT)] | pieceBits[Piece.make(Piece.BLACK, Piece.KNIGHT)];
+        long bishops = pieceBits[Piece.make(Piece.WHITE, Piece.BISHOP)] | pieceBits[Piece.make(Piece.BLACK, Piece.BISHOP)];
+        if (knights == 0 && ((bishops & LIGHT_SQUARES) == 0 || (bishops & ~LIGHT_SQUARES) == 0)) {
+            return true;
+        }
+        return Long.bitCount(knights | bishops) <= 1;
+    }
+
+    /**
+     * Determines if a square is attacked by any piece of the given color.
+     *
+     * @param square the square number
+     * @param color the color of the attackers
+     * @return if the square is attacked
+     */
+    public boolean isAttacked(int square, int color) {
+        if ((Bitboards.PAWN_ATTACKS[color ^ 1][square] & pieceBits[Piece.make(color, Piece.PAWN)]) != 0) {
+            return true;
+        }
+        if ((Bitboards.KNIGHT_ATTACKS[square] & pieceBits[Piece.make(color, Piece.KNIGHT)]) != 0) {
+            return true;
+        }
+        if ((Bitboards.KING_ATTACKS[square] & pieceBits[Piece.make(color, Piece.KING)]) != 0) {
+            return true;
+        }
+        long queens = pieceBits[Piece.make(color, Piece.QUEEN)];
+        long diagonal = pieceBits[Piece.make(color, Piece.BISHOP)] | queens;
+        if ((Bitboards.bishopAttacks(square, occupied) & diagonal) != 0) {
+            return true;
+        }
+        long straight = pieceBits[Piece.make(color, Piece.ROOK)] | queens;
+        return (Bitboards.rookAttacks(square, occupied) & straight) != 0;
+    }
+
+    /**
+     * Gets the pieces of both colors attacking a square as if only the
+     * given squares were occupied, so pieces taken off the board let the
+     * sliders behind them through.
+     *
+     * @param square the square number
+     * @param occupied the squares to treat as occupied
+     * @return the bitboard of the attackers standing on occupied squares
+     */
+    public long attackersTo(int square, long occupied) {
+        long diagonal = pieceBits[Piece.make(Piece.WHITE, Piece.BISHOP)] | pieceBits[Piece.make(Piece.BLACK, Piece.BISHOP)]
+                | pieceBits[Piece.make(Piece.WHITE, Piece.QUEEN)] | pieceBits[Piece.make(Piece.BLACK, Piece.QUEEN)];
+        long straight = pieceBits[Piece.make(Piece.WHITE, Piece.ROOK)] | pieceBits[Piece.make(Piece.BLACK, Piece.ROOK)]
+                | pieceBits[Piece.make(Piece.WHITE, Piece.QUEEN)] | pieceBits[Piece.make(Piece.BLACK, Piece.QUEEN)];
+        long attackers = (Bitboards.PAWN_ATTACKS[Piece.BLACK][square] & pieceBits[Piece.make(Piece.WHITE, Piece.PAWN)])
+                | (Bitboards.PAWN_ATTACKS[Piece.WHITE][square] & pieceBits[Piece.make(Piece.BLACK, Piece.PAWN)])
+                | (Bitboards.KNIGHT_ATTACKS[square] & (pieceBits[Piece.make(Piece.WHITE, Piece.KNIGHT)]
+                        | pieceBits[Piece.make(Piece.BLACK, Piece.KNIGHT)]))
+                | (Bitboards.KING_ATTACKS[square] & (pieceBits[Piece.make(Piece.WHITE, Piece.KING)]
+                        | pieceBits[Piece.make(Piece.BLACK, Piece.KING)]))
+                | (Bitboards.bishopAttacks(square, occupied) & diagonal)
+                | (Bitboards.rookAttacks(square, occupied) & straight);
+        return attackers & occupied;
+    }
+
+    /**
+     * Gets the squares the piece on the given square can move to,
+     * following its movement rules, without checking whose turn it is.
+     * Castling is not included.
+     *
+     * @param from the square of the piece
+     * @return the bitboard of destination squares, empty if there is no piece
+     */
+    public long targets(int from) {
+        int piece = squares[from];
+        if (piece == Piece.EMPTY) {
+            return 0L;
+        }
+        return targets(piece, from);
+    }
+
+    /**
+     * Gets the squares the given piece could move to if it stood on
+     * the given square, following its movement rules.
+     *
+     * @param piece the piece code
+     * @param from the square of the piece
+     * @return the bitboard of destination squares
+     */
+    long targets(int piece, int from) {
+        int color = Piece.color(piece);
+        long notOwn = ~colorBits[color];
+        switch (Piece.type(piece)) {
+            case Piece.PAWN:
+                return pawnTargets(color, from);
+            case Piece.KNIGHT:
+                return Bitboards.KNIGHT_ATTACKS[from] & notOwn;
+            case Piece.BISHOP:
+                return Bitboards.bishopAttacks(from, occupied) & notOwn;
+            case Piece.ROOK:
+                return Bitboards.rookAttacks(from, occupied) & notOwn;
+            case Piece.QUEEN:
+                return Bitboards.queenAttacks(from, occupied) & notOwn;
+            case Piece.KING:
+                return Bitboards.KING_ATTACKS[from] & notOwn;
+            default:
+                return 0L;
+        }
+    }
+
+    //
+    // Squares a pawn can go to. A pawn moves forward only onto empty
+    // tiles, one tile or two from its starting row, and moves diagonally
+    // only to capture, including en passant.
+    //
+    private long pawnTargets(int color, int from) {
+        long empty = ~occupied;
+        long enemies = colorBits[color ^ 1];
+        if (epSquare != NO_SQUARE && (epSquare >>> 3) == (color == Piece.WHITE ? 5 : 2)) {
+            enemies |= Bitboards.bit(epSquare);
+        }
+        long captures = Bitboards.PAWN_ATTACKS[color][from] & enemies;
+        long pawn = Bitboards.bit(from);
+        long push;
+        if (color == Piece.WHITE) {
+            push = (pawn << 8) & empty;
+            if ((from >>> 3) == 1) {
+                push |= (push << 8) & empty;
+            }
+        } else {
+            push = (pawn >>> 8) & empty;
+            if ((from >>> 3) == 6) {
+                push |= (push >>> 8) & empty;
+            }
+        }
+        return push | captures;
+    }
+
+    //
+    // Adds the moves of one pawn to the squares of the mask, with a
+    // move per promotion type when it reaches the last row
+    //
+    private void addPawnMoves(MoveList list, int pawn, int from, long mask) {
+        long targets = pawnTargets(sideToMove, from) & mask;
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            int captured = squares[to];
+            int flag = Move.NORMAL;
+            if (to == epSquare) {
+                captured = Piece.make(sideToMove ^ 1, Piece.PAWN);
+                flag = Move.EN_PASSANT;
+            } else if (Math.abs(to - from) == 16) {
+                flag = Move.DOUBLE_PUSH;
+            }
+            int row = to >>> 3;
+            if (row == 0 || row == 7) {
+                for (int promotion : PROMOTIONS) {
+                    list.add(Move.make(from, to, pawn, captured, promotion, flag));
+                }
+            } else {
+                list.add(Move.make(from, to, pawn, captured, Piece.EMPTY, flag));
+            }
+        }
+    }
+
+    //
+    // Finds the pieces of the given color that shield their king from
+    // an enemy slider, so moving off the line would expose the king
+    //
+    private long pinned(int color, int king) {
+        int them = color ^ 1;
+        long queens = pieceBits[Piece.make(them, Piece.QUEEN)];
+        long snipers = (Bitboards.rookAttacks(king, 0L) & (pieceBits[Piece.make(them, Piece.ROOK)] | queens))
+                | (Bitboards.bishopAttacks(king, 0L) & (pieceBits[Piece.make(them, Piece.BISHOP)] | queens));
+        long pinned = 0L;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Bitboards.BETWEEN[king][sniper] & occupied;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0 && (blockers & colorBits[color]) != 0) {
+                pinned |= blockers;
+            }
+        }
+        return pinned;
+    }
+
+    //
+    // Adds the legal en passant captures. Both pawns leave the row at
+    // once, which can uncover the king in ways pins do not show, so
+    // each capture is tried on the board.
+    //
+    private void addEnPassant(MoveList list, int us) {
+        int pawn = Piece.make(us, Piece.PAWN);
+        long capturers = Bitboards.PAWN_ATTACKS[us ^ 1][epSquare] & pieceBits[pawn];
+        while (capturers != 0) {
+            int from = Long.numberOfTrailingZeros(capturers);
+            capturers &= capturers - 1;
+            int move = Move.make(from, epSquare, pawn, Piece.make(us ^ 1, Piece.PAWN), Piece.EMPTY,
+                    Move.EN_PASSANT);
+            makeMove(move);
+            boolean legal = !isInCheck(us);
+            unmakeMove(move);
+            if (legal) {
+                list.add(move);
+            }
+        }
+    }
+
+    //
+    // Adds the castling moves of the side to move. The king may not
+    // castle out of, through or into an attacked tile.
+    //
+    private void addCastling(MoveList list) {
+        int us = sideToMove;
+        int king = us == Piece.WHITE ? 4 : 60;
+        int kingside = us == Piece.WHITE ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+        int queenside = us == Piece.WHITE ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+        if ((castling & (kingside | queenside)) == 0 || isAttacked(king, us ^ 1)) {
+            return;
+        }
+        int piece = squares[king];
+        if ((castling & kingside) != 0 && (occupied & (3L << (king + 1))) == 0
+                && !isAttacked(king + 1, us ^ 1) && !isAttacked(king + 2, us ^ 1)) {
+            list.add(Move.make(king, king + 2, piece, Piece.EMPTY, Piece.EMPTY, Move.CASTLE));
+        }
+        if ((castling & queenside) != 0 && (occupied & (7L << (king - 3))) == 0
+                && !isAttacked(king - 1, us ^ 1) && !isAttacked(king - 2, us ^ 1)) {
+            list.add(Move.make(king, king - 2, piece, Piece.EMPTY, Piece.EMPTY, Move.CASTLE));
+        }
+    }
+
+    //
+    // Places a piece on an empty square, keeping the hash and the
+    // evaluation sums up to date
+    //
+    private void put(int sq, int piece) {
+        long bit = Bitboards.bit(sq);
+        squares[sq] = piece;
+        pieceBits[piece] |= bit;
+        colorBits[Piece.color(piece)] |= bit;
+        occupied |= bit;
+        hash ^= Zobrist.PIECE[piece][sq];
+        middlegame += Evaluation.middlegame(piece, sq);
+        endgame += Evaluation.endgame(piece, sq);
+        phase += Evaluation.phase(piece);
+    }
+
+    //
+    // Removes the piece from an occupied square
+    //
+    private void remove(int sq) {
+        long bit = Bitboards.bit(sq);
+        int piece = squares[sq];
+        squares[sq] = Piece.EMPTY;
+        pieceBits[piece] &= ~bit;
+        colorBits[Piece.color(piece)] &= ~bit;
+        occupied &= ~bit;
+        hash ^= Zobrist.PIECE[piece][sq];
+        middlegame -= Evaluation.middlegame(piece, sq);
+        endgame -= Evaluation.endgame(piece, sq);
+        phase -= Evaluation.phase(piece);
+    }
+
+    //
+    // Determines if the coordinates are on the board
+    //
+    private static boolean onBoard(int x, int y) {
+        return x >= 0 && x < 8 && y >= 0 && y < 8;
+    }
+}
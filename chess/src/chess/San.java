@@ -0,0 +1,193 @@
+package chess;
+
+/**
+ * San reads and writes moves in Standard Algebraic Notation, the move
+ * format of PGN games, such as "Nf3", "exd5", "O-O" or "e8=Q+". Moves
+ * are only accepted when they are legal in the Position, so reading a
+ * game also checks it.
+ *
+ * A San keeps its move lists to avoid allocating per move, so each
+ * thread needs its own.
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public class San {
+    private static final String PIECES = " PNBRQK";
+    private final MoveList moves = new MoveList();
+    private final MoveList replies = new MoveList();
+
+    /**
+     * Writes a legal move of the Position in Standard Algebraic Notation,
+     * with the fewest origin hints that make it unambiguous and a "+" or
+     * "#" when it checks or mates.
+     *
+     * @param position the Position before the move, left unchanged
+     * @param move the packed move
+     * @return the move as text
+     */
+    public String toSan(Position position, int move) {
+        StringBuilder san = new StringBuilder(8);
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int type = Piece.type(Move.piece(move));
+        if (Move.flag(move) == Move.CASTLE) {
+            san.append(to > from ? "O-O" : "O-O-O");
+        } else if (type == Piece.PAWN) {
+            if (Move.captured(move) != Piece.EMPTY) {
+                san.append((char) ('a' + (from & 7))).append('x');
+            }
+            san.append(Fen.squareName(to));
+            if (Move.promotion(move) != Piece.EMPTY) {
+                san.append('=').append(PIECES.charAt(Move.promotion(move)));
+            }
+        } else {
+            san.append(PIECES.charAt(type));
+            disambiguate(position, move, san);
+            if (Move.captured(move) != Piece.EMPTY) {
+                san.append('x');
+            }
+            san.append(Fen.squareName(to));
+        }
+        int them = position.getSideToMove() ^ 1;
+        position.makeMove(move);
+        if (position.isInCheck(them)) {
+            replies.clear();
+            position.generateLegalMoves(replies);
+            san.append(replies.size() == 0 ? '#' : '+');
+        }
+        position.unmakeMove(move);
+        return san.toString();
+    }
+
+    /**
+     * Reads a move in Standard Algebraic Notation. Check marks and
+     * annotations such as "!?" are ignored, and a promotion without a
+     * piece is taken as a queen.
+     *
+     * @param position the Position the move is played in, left unchanged
+     * @param text the move as text
+     * @return the packed move
+     * @throws IllegalArgumentException if the text is not a legal move
+     */
+    public int parse(Position position, CharSequence text) {
+        int end = text.length();
+        while (end > 0 && "+#!?".indexOf(text.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        if (end == 0) {
+            throw new IllegalArgumentException("Not a move: " + text);
+        }
+        // only the moves matching the text are checked for legality
+        moves.clear();
+        position.generateMoves(moves);
+        if (text.charAt(0) == 'O' || text.charAt(0) == '0') {
+            boolean queenside = end >= 5;
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                if (Move.flag(move) == Move.CASTLE && (Move.to(move) < Move.from(move)) == queenside
+                        && isLegal(position, move)) {
+                    return move;
+                }
+            }
+            throw new IllegalArgumentException("Illegal move: " + text);
+        }
+        int type = Piece.PAWN;
+        int start = 0;
+        if (PIECES.indexOf(text.charAt(0)) > 1) {
+            type = PIECES.indexOf(text.charAt(0));
+            start = 1;
+        }
+        int promotion = Piece.EMPTY;
+        if (type == Piece.PAWN && PIECES.indexOf(text.charAt(end - 1)) > 1) {
+            promotion = PIECES.indexOf(text.charAt(end - 1));
+            end--;
+            if (end > 0 && text.charAt(end - 1) == '=') {
+                end--;
+            }
+        }
+        // what is left is the origin hints, a capture mark and the destination
+        int column = -1;
+        int row = -1;
+        int to = -1;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= 'a' && c <= 'h' && i + 1 < end && text.charAt(i + 1) >= '1' && text.charAt(i + 1) <= '8'
+                    && i + 2 >= end) {
+                to = Fen.square(c, text.charAt(i + 1));
+                break;
+            } else if (c >= 'a' && c <= 'h') {
+                column = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                row = c - '1';
+            } else if (c != 'x' && c != '-' && c != ':') {
+                throw new IllegalArgumentException("Not a move: " + text);
+            }
+        }
+        if (to < 0) {
+            throw new IllegalArgumentException("Not a move: " + text);
+        }
+        int found = Move.NONE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int from = Move.from(move);
+            if (Move.to(move) != to || Piece.type(Move.piece(move)) != type
+                    || Move.flag(move) == Move.CASTLE
+                    || (column >= 0 && (from & 7) != column) || (row >= 0 && (from >>> 3) != row)) {
+                continue;
+            }
+            if (Move.promotion(move) != Piece.EMPTY
+                    && Move.promotion(move) != (promotion == Piece.EMPTY ? Piece.QUEEN : promotion)
+                    || !isLegal(position, move)) {
+                continue;
+            }
+            if (found != Move.NONE) {
+                throw new IllegalArgumentException("Ambiguous move: " + text);
+            }
+            found = move;
+        }
+        if (found == Move.NONE) {
+            throw new IllegalArgumentException("Illegal move: " + text);
+        }
+        return found;
+    }
+
+    //
+    // Checks that a generated move does not leave the king attacked
+    //
+    private static boolean isLegal(Position position, int move) {
+        int us = position.getSideToMove();
+        position.makeMove(move);
+        boolean legal = !position.isInCheck(us);
+        position.unmakeMove(move);
+        return legal;
+    }
+
+    //
+    // Adds the column, the row or both of the origin when another piece
+    // of the same type can move to the same square
+    //
+    private void disambiguate(Position position, int move, StringBuilder san) {
+        int from = Move.from(move);
+        moves.clear();
+        position.generateLegalMoves(moves);
+        boolean ambiguous = false;
+        boolean sameColumn = false;
+        boolean sameRow = false;
+        for (int i = 0; i < moves.size(); i++) {
+            int other = moves.get(i);
+            int otherFrom = Move.from(other);
+            if (otherFrom != from && Move.to(other) == Move.to(move) && Move.piece(other) == Move.piece(move)) {
+                ambiguous = true;
+                sameColumn |= (otherFrom & 7) == (from & 7);
+                sameRow |= (otherFrom >>> 3) == (from >>> 3);
+            }
+        }
+        if (ambiguous && (!sameColumn || sameRow)) {
+            san.append((char) ('a' + (from & 7)));
+        }
+        if (ambiguous && sameColumn) {
+            san.append((char) ('1' + (from >>> 3)));
+        }
+    }
+}
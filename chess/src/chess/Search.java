@@ -0,0 +1,540 @@
+package chess;
+
+/**
+ * Search finds the best move of a Position with a negamax search and
+ * alpha-beta pruning, deepened one ply at a time until a depth, time or
+ * node budget of its SearchLimits runs out. The moves of the last
+ * completed iteration are kept, so stopping early always leaves a best
+ * move and its principal variation.
+ *
+ * Scores are remembered in a TranspositionTable so positions reached
+ * through different move orders are only searched once, and the best
+ * move stored for a position is tried first when it is seen again.
+ *
+ * Several Search objects sharing one table can run at once on
+ * different threads, see ParallelSearch.
+ *
+ * A Search copies the Position once and explores every line on that
+ * copy with makeMove and unmakeMove. Its move lists are allocated once,
+ * so it can be reused for every move of a game without creating garbage.
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public class Search {
+    /**
+     * Deepest ply the search can reach.
+     */
+    public static final int MAX_PLY = 64;
+    /**
+     * Score of mating the opponent right now. Mates further away
+     * score one less per ply.
+     */
+    public static final int MATE = 30000;
+    private static final int INFINITY = 32000;
+    //
+    // Number of nodes between two looks at the clock
+    //
+    private static final int CHECK_INTERVAL = 1024;
+    //
+    // Order scores: the move stored in the table, then captures and
+    // promotions by most valuable victim and least valuable attacker,
+    // then the two killer moves, then the other quiet moves by their
+    // history, and last the captures that lose material in the exchange
+    //
+    private static final int HASH_SCORE = 1 << 25;
+    private static final int CAPTURE_SCORE = 1 << 24;
+    private static final int KILLER_SCORE = 1 << 23;
+    private static final int HISTORY_MAX = 1 << 20;
+    //
+    // Margin over the captured piece before a capture that cannot
+    // lift the score to alpha is skipped in the quiescence search
+    //
+    private static final int DELTA_MARGIN = 200;
+    private final TranspositionTable table;
+    private final Position board;
+    private final MoveList[] moveLists;
+    private final int[][] pvTable;
+    private final int[] pvLength;
+    private final int[][] moveScores;
+    private final int[][] killers;
+    private final int[][] history;
+    private final See see = new See();
+    private long nodes;
+    private volatile long softDeadline;
+    private volatile long deadline;
+    private long maxNodes;
+    private int rootDepth;
+    private int depthOffset;
+    private boolean stopped;
+    private volatile boolean stopRequested;
+    private Tablebase tablebase;
+    private SearchListener listener;
+
+    /**
+     * Constructor for a Search with a transposition table of the default size.
+     */
+    public Search() {
+        this(new TranspositionTable());
+    }
+
+    /**
+     * Constructor for a Search using the given transposition table.
+     *
+     * @param table the table to remember scored positions in
+     */
+    public Search(TranspositionTable table) {
+        this.table = table;
+        board = new Position();
+        moveLists = new MoveList[MAX_PLY];
+        for (int i = 0; i < MAX_PLY; i++) {
+            moveLists[i] = new MoveList();
+        }
+        pvTable = new int[MAX_PLY][MAX_PLY];
+        pvLength = new int[MAX_PLY];
+        moveScores = new int[MAX_PLY][MoveList.CAPACITY];
+        killers = new int[MAX_PLY][2];
+        history = new int[16][Position.SQUARES];
+    }
+
+    /**
+     * Searches the Position with iterative deepening until one of the
+     * budgets runs out. The first iteration always completes.
+     *
+     * @param position the Position to search, left unchanged
+     * @param maxDepth the deepest iteration to search
+     * @param maxMillis the time budget in milliseconds, Long.MAX_VALUE for none
+     * @param maxNodes the node budget
+     * @return the best move of the last completed iteration and its line
+     */
+    public SearchResult search(Position position, int maxDepth, long maxMillis, long maxNodes) {
+        SearchLimits limits = SearchLimits.moveTime(maxMillis);
+        limits.setDepth(maxDepth);
+        limits.setNodes(maxNodes);
+        return search(position, limits);
+    }
+
+    /**
+     * Searches the Position with iterative deepening until one of the
+     * limits runs out. The first iteration always completes.
+     *
+     * @param position the Position to search, left unchanged
+     * @param limits the budgets of the search
+     * @return the best move of the last completed iteration and its line
+     */
+    public SearchResult search(Position position, SearchLimits limits) {
+        stopRequested = false;
+        table.newSearch();
+        return iterate(position, limits);
+    }
+
+    //
+    // Runs the iterative deepening loop. Unlike search it does not clear
+    // a stop request or age the table, so a parallel search can set both
+    // up before its threads start.
+    //
+    SearchResult iterate(Position position, SearchLimits limits) {
+        long start = System.currentTimeMillis();
+        int color = position.getSideToMove();
+        this.softDeadline = deadline(start, limits.softMillis(color));
+        this.deadline = deadline(start, limits.hardMillis(color));
+        this.maxNodes = limits.getNodes();
+        int maxDepth = limits.getDepth();
+        nodes = 0;
+        stopped = false;
+        board.copyFrom(position);
+        for (int[] killer : killers) {
+            killer[0] = Move.NONE;
+            killer[1] = Move.NONE;
+        }
+        ageHistory();
+        int[] pv = new int[0];
+        int score = 0;
+        int depth = 0;
+        for (int d = 1 + depthOffset; d <= Math.min(maxDepth, MAX_PLY - 1); d++) {
+            rootDepth = d;
+            int value = negamax(d, 0, -INFINITY, INFINITY);
+            if (stopped) {
+                break;
+            }
+            score = value;
+            depth = d;
+            pv = new int[pvLength[0]];
+            System.arraycopy(pvTable[0], 0, pv, 0, pv.length);
+            if (listener != null) {
+                listener.iteration(new SearchResult(score, depth, nodes, System.currentTimeMillis() - start, pv));
+            }
+            if (Math.abs(score) >= MATE - MAX_PLY || System.currentTimeMillis() >= softDeadline) {
+                break;
+            }
+        }
+        return new SearchResult(score, depth, nodes, System.currentTimeMillis() - start, pv);
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible. It returns the
+     * best move of its last completed iteration. Safe to call from
+     * another thread.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Gives a running search started without a time limit the given
+     * time from now, for a search on the opponent's time whose
+     * predicted move was played. Can be called from another thread.
+     *
+     * @param maxMillis the time left in milliseconds
+     */
+    public void ponderhit(long maxMillis) {
+        long now = System.currentTimeMillis();
+        softDeadline = deadline(now, maxMillis);
+        deadline = deadline(now, maxMillis);
+    }
+
+    //
+    // Adds a time budget to the start time without overflowing
+    //
+    private static long deadline(long start, long millis) {
+        return millis > Long.MAX_VALUE - start ? Long.MAX_VALUE : start + millis;
+    }
+
+    /**
+     * Gets the number of positions visited by the running or
+     * last search. Read from another thread the value may lag.
+     *
+     * @return the node count
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Sets the endgame tables looked up once few pieces are left, so
+     * those positions score exactly without being searched.
+     *
+     * @param tablebase the tables, or null to search every position
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Sets the listener told about every completed iteration.
+     *
+     * @param listener the listener, or null for none
+     */
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets how many plies deeper than usual every iteration searches.
+     * Helper threads of a parallel search use it to spread over
+     * different depths.
+     *
+     * @param depthOffset the extra plies
+     */
+    void setDepthOffset(int depthOffset) {
+        this.depthOffset = depthOffset;
+    }
+
+    //
+    // Clears a stop request and the node count of the last search
+    // before the search is handed to a thread
+    //
+    void clearStop() {
+        stopRequested = false;
+        nodes = 0;
+    }
+
+    //
+    // Scores the position at the given ply by searching depth more
+    // plies, only caring about scores between alpha and beta.
+    //
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        Position position = board;
+        int us = position.getSideToMove();
+        if (position.kingSquare(us) == Position.NO_SQUARE) {
+            return -MATE + ply;
+        }
+        if (tablebase != null && ply > 0 && Long.bitCount(position.getOccupied()) <= Tablebase.MAX_PIECES) {
+            int score = tablebase.score(position, ply);
+            if (score != Tablebase.NOT_FOUND) {
+                nodes++;
+                return score;
+            }
+        }
+        if (depth == 0) {
+            return quiesce(ply, alpha, beta);
+        }
+        if (ply >= MAX_PLY - 1) {
+            nodes++;
+            return Evaluation.evaluate(position);
+        }
+        // a position that occurred before is scored as a draw
+        if (ply > 0 && (position.getHalfmoveClock() >= 100 || position.repetitions() > 0)) {
+            return 0;
+        }
+        nodes++;
+        if ((nodes % CHECK_INTERVAL) == 0) {
+            checkBudget();
+        }
+        long hash = position.getHash();
+        long entry = table.probe(hash);
+        int hashMove = TranspositionTable.move(entry);
+        if (entry != 0 && ply > 0 && TranspositionTable.depth(entry) >= depth) {
+            int score = fromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && score >= beta)
+                    || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                return score;
+            }
+        }
+        MoveList moves = moveLists[ply];
+        moves.clear();
+        position.generateLegalMoves(moves);
+        if (moves.size() == 0) {
+            return position.isInCheck(us) ? -MATE + ply : 0;
+        }
+        int[] scores = moveScores[ply];
+        scoreMoves(moves, scores, ply, hashMove);
+        int alphaStart = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < moves.size() && !stopped; i++) {
+            pickMove(moves, scores, i);
+            int move = moves.get(i);
+            position.makeMove(move);
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            position.unmakeMove(move);
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+            }
+            if (score > alpha) {
+                alpha = score;
+                pvTable[ply][0] = move;
+                System.arraycopy(pvTable[ply + 1], 0, pvTable[ply], 1, pvLength[ply + 1]);
+                pvLength[ply] = pvLength[ply + 1] + 1;
+                if (score >= beta) {
+                    if (Move.captured(move) == Piece.EMPTY && Move.promotion(move) == Piece.EMPTY) {
+                        rememberQuiet(move, depth, ply);
+                    }
+                    break;
+                }
+            }
+        }
+        if (stopped) {
+            return bestScore;
+        }
+        int bound = TranspositionTable.EXACT;
+        if (bestScore >= beta) {
+            bound = TranspositionTable.LOWER;
+        } else if (bestScore <= alphaStart) {
+            bound = TranspositionTable.UPPER;
+        }
+        table.store(hash, bestMove, toTable(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    //
+    // Scores the position at the horizon by searching only captures and
+    // promotions until the position is quiet, so a capture is never
+    // counted without its recapture. The side to move may stand pat on
+    // the evaluation instead of capturing, unless it is in check, when
+    // all its moves are searched.
+    //
+    private int quiesce(int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        Position position = board;
+        int us = position.getSideToMove();
+        if (position.kingSquare(us) == Position.NO_SQUARE) {
+            return -MATE + ply;
+        }
+        nodes++;
+        if ((nodes % CHECK_INTERVAL) == 0) {
+            checkBudget();
+        }
+        boolean inCheck = position.isInCheck(us);
+        MoveList moves = moveLists[ply];
+        moves.clear();
+        int standPat = -INFINITY;
+        if (inCheck) {
+            // a side in check cannot stand pat, so every evasion is searched
+            position.generateLegalMoves(moves);
+            if (moves.size() == 0) {
+                return -MATE + ply;
+            }
+            if (ply >= MAX_PLY - 1) {
+                return Evaluation.evaluate(position);
+            }
+        } else {
+            standPat = Evaluation.evaluate(position);
+            if (standPat >= beta || ply >= MAX_PLY - 1) {
+                return standPat;
+            }
+            if (standPat > alpha) {
+                alpha = standPat;
+            }
+            position.generateCaptures(moves);
+        }
+        int bestScore = standPat;
+        int[] scores = moveScores[ply];
+        scoreMoves(moves, scores, ply, Move.NONE);
+        for (int i = 0; i < moves.size() && !stopped; i++) {
+            pickMove(moves, scores, i);
+            int move = moves.get(i);
+            if (!inCheck) {
+                if (scores[i] < 0) {
+                    // the rest lose material in the exchange
+                    break;
+                }
+                int captured = Piece.type(Move.captured(move));
+                // delta pruning: even winning the piece cannot reach alpha
+                if (Move.promotion(move) == Piece.EMPTY && captured != Piece.KING
+                        && standPat + Evaluation.MATERIAL[captured] + DELTA_MARGIN <= alpha) {
+                    continue;
+                }
+            }
+            position.makeMove(move);
+            if (!inCheck && position.isInCheck(us)) {
+                position.unmakeMove(move);
+                continue;
+            }
+            int score = -quiesce(ply + 1, -beta, -alpha);
+            position.unmakeMove(move);
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (score >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    //
+    // Gives every move its order score for pickMove. The move stored
+    // in the table goes first, and only if it is one of the moves, so
+    // a move from another position sharing the slot is never played.
+    //
+    private void scoreMoves(MoveList moves, int[] scores, int ply, int hashMove) {
+        int killer0 = killers[ply][0];
+        int killer1 = killers[ply][1];
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int captured = Move.captured(move);
+            int promotion = Move.promotion(move);
+            if (move == hashMove) {
+                scores[i] = HASH_SCORE;
+            } else if (captured != Piece.EMPTY || promotion != Piece.EMPTY) {
+                int order = Piece.type(captured) * 16 + promotion * 16 - Piece.type(Move.piece(move));
+                // only a capture by a more valuable piece can lose material
+                int attacker = Piece.type(Move.piece(move));
+                boolean losing = Evaluation.MATERIAL[attacker] > Evaluation.MATERIAL[Piece.type(captured)]
+                        && see.see(board, move) < 0;
+                scores[i] = losing ? order - CAPTURE_SCORE : CAPTURE_SCORE + order;
+            } else if (move == killer0) {
+                scores[i] = KILLER_SCORE + 1;
+            } else if (move == killer1) {
+                scores[i] = KILLER_SCORE;
+            } else {
+                scores[i] = history[Move.piece(move)][Move.to(move)];
+            }
+        }
+    }
+
+    //
+    // Moves the best scored move from index on to index, a step of a
+    // selection sort, so only the moves searched before a cutoff are
+    // ever sorted
+    //
+    private static void pickMove(MoveList moves, int[] scores, int index) {
+        int best = index;
+        for (int i = index + 1; i < moves.size(); i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        if (best != index) {
+            int move = moves.get(best);
+            moves.set(best, moves.get(index));
+            moves.set(index, move);
+            int score = scores[best];
+            scores[best] = scores[index];
+            scores[index] = score;
+        }
+    }
+
+    //
+    // Remembers a quiet move that caused a cutoff as a killer of its
+    // ply and raises its history, more for deeper cutoffs
+    //
+    private void rememberQuiet(int move, int depth, int ply) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] counts = history[Move.piece(move)];
+        counts[Move.to(move)] += depth * depth;
+        if (counts[Move.to(move)] >= HISTORY_MAX) {
+            ageHistory();
+        }
+    }
+
+    //
+    // Halves the history so old cutoffs count less than new ones
+    //
+    private void ageHistory() {
+        for (int[] counts : history) {
+            for (int to = 0; to < counts.length; to++) {
+                counts[to] >>= 1;
+            }
+        }
+    }
+
+    //
+    // Mate scores are stored relative to the position rather
+    // than to the root so they stay true at any ply
+    //
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    //
+    // Converts a stored mate score back to the ply it is read at
+    //
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    //
+    // Stops the search once the time or node budget is spent. The
+    // first iteration is never stopped so there is always a move.
+    //
+    private void checkBudget() {
+        if (rootDepth > 1 + depthOffset
+                && (stopRequested || nodes >= maxNodes || System.currentTimeMillis() >= deadline)) {
+            stopped = true;
+        }
+    }
+}
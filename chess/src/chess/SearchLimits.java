@@ -0,0 +1,285 @@
+package chess;
+
+/**
+ * SearchLimits holds the budgets a Search may spend on one move: the
+ * players' clocks and increments, a fixed time per move, a fixed depth,
+ * a fixed node count, or no limit until the search is stopped. Every
+ * limit that is set applies and the first to run out ends the search.
+ *
+ * From a clock the search gets two times. After the soft time it does
+ * not start another iteration, since the next one would most likely
+ * not finish. At the hard time it stops in the middle of an iteration.
+ * Either way the best move of the last completed iteration is played.
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public class SearchLimits {
+    /**
+     * Value of a time that is not set.
+     */
+    public static final long NONE = -1;
+    //
+    // Time kept back on every move for the moves to reach the board
+    //
+    private static final long MOVE_OVERHEAD = 30;
+    //
+    // Number of moves the clock is shared over when the time control
+    // does not say how many moves are left
+    //
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+    //
+    // The hard time is at most this many times the soft time
+    //
+    private static final int HARD_FACTOR = 3;
+    private final long[] time = {NONE, NONE};
+    private final long[] increment = {0, 0};
+    private int movesToGo;
+    private long moveTime = NONE;
+    private int depth = Search.MAX_PLY;
+    private long nodes = Long.MAX_VALUE;
+    private boolean infinite;
+
+    /**
+     * Constructor for SearchLimits with no limits set. A search with
+     * them runs until it reaches the deepest ply or is stopped.
+     */
+    public SearchLimits() {
+        super();
+    }
+
+    /**
+     * Creates limits for a fixed time per move.
+     *
+     * @param millis the time per move in milliseconds
+     * @return the SearchLimits
+     */
+    public static SearchLimits moveTime(long millis) {
+        SearchLimits limits = new SearchLimits();
+        limits.setMoveTime(millis);
+        return limits;
+    }
+
+    /**
+     * Creates limits for a fixed depth.
+     *
+     * @param depth the deepest iteration to search
+     * @return the SearchLimits
+     */
+    public static SearchLimits depth(int depth) {
+        SearchLimits limits = new SearchLimits();
+        limits.setDepth(depth);
+        return limits;
+    }
+
+    /**
+     * Creates limits for a fixed number of nodes.
+     *
+     * @param nodes the node budget
+     * @return the SearchLimits
+     */
+    public static SearchLimits nodes(long nodes) {
+        SearchLimits limits = new SearchLimits();
+        limits.setNodes(nodes);
+        return limits;
+    }
+
+    /**
+     * Creates a copy of these limits.
+     *
+     * @return the copy
+     */
+    public SearchLimits copy() {
+        SearchLimits copy = new SearchLimits();
+        System.arraycopy(time, 0, copy.time, 0, time.length);
+        System.arraycopy(increment, 0, copy.increment, 0, increment.length);
+        copy.movesToGo = movesToGo;
+        copy.moveTime = moveTime;
+        copy.depth = depth;
+        copy.nodes = nodes;
+        copy.infinite = infinite;
+        return copy;
+    }
+
+    /**
+     * Gets the time left on a player's clock.
+     *
+     * @param color Piece.WHITE or Piece.BLACK
+     * @return the time in milliseconds, or NONE
+     */
+    public long getTime(int color) {
+        return time[color];
+    }
+
+    /**
+     * Sets the time left on a player's clock.
+     *
+     * @param color Piece.WHITE or Piece.BLACK
+     * @param millis the time in milliseconds, or NONE
+     */
+    public void setTime(int color, long millis) {
+        time[color] = millis;
+    }
+
+    /**
+     * Gets the time a player gains after every move.
+     *
+     * @param color Piece.WHITE or Piece.BLACK
+     * @return the increment in milliseconds
+     */
+    public long getIncrement(int color) {
+        return increment[color];
+    }
+
+    /**
+     * Sets the time a player gains after every move.
+     *
+     * @param color Piece.WHITE or Piece.BLACK
+     * @param millis the increment in milliseconds
+     */
+    public void setIncrement(int color, long millis) {
+        increment[color] = millis;
+    }
+
+    /**
+     * Gets the number of moves until the next time control.
+     *
+     * @return the number of moves, or 0 if the clock has to last the game
+     */
+    public int getMovesToGo() {
+        return movesToGo;
+    }
+
+    /**
+     * Sets the number of moves until the next time control.
+     *
+     * @param movesToGo the number of moves, or 0 if the clock has to last the game
+     */
+    public void setMovesToGo(int movesToGo) {
+        this.movesToGo = movesToGo;
+    }
+
+    /**
+     * Gets the fixed time per move.
+     *
+     * @return the time in milliseconds, or NONE
+     */
+    public long getMoveTime() {
+        return moveTime;
+    }
+
+    /**
+     * Sets a fixed time per move, used instead of the clocks.
+     *
+     * @param millis the time in milliseconds, or NONE
+     */
+    public void setMoveTime(long millis) {
+        moveTime = millis;
+    }
+
+    /**
+     * Gets the deepest iteration to search.
+     *
+     * @return the depth in plies
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Sets the deepest iteration to search.
+     *
+     * @param depth the depth in plies
+     */
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * Gets the node budget.
+     *
+     * @return the number of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Sets the node budget.
+     *
+     * @param nodes the number of nodes
+     */
+    public void setNodes(long nodes) {
+        this.nodes = nodes;
+    }
+
+    /**
+     * Checks if the search ignores every time limit until stopped.
+     *
+     * @return if the search is infinite
+     */
+    public boolean isInfinite() {
+        return infinite;
+    }
+
+    /**
+     * Sets if the search ignores every time limit until stopped.
+     *
+     * @param infinite if the search is infinite
+     */
+    public void setInfinite(boolean infinite) {
+        this.infinite = infinite;
+    }
+
+    /**
+     * Gets the time after which no new iteration is started.
+     *
+     * @param color the color of the player to move
+     * @return the time in milliseconds, Long.MAX_VALUE for none
+     */
+    public long softMillis(int color) {
+        if (infinite) {
+            return Long.MAX_VALUE;
+        }
+        if (moveTime != NONE) {
+            return moveTime;
+        }
+        if (time[color] == NONE) {
+            return Long.MAX_VALUE;
+        }
+        int moves = movesToGo > 0 ? movesToGo : DEFAULT_MOVES_TO_GO;
+        long soft = available(color) / moves + increment[color] * 3 / 4;
+        return Math.min(soft, hardMillis(color));
+    }
+
+    /**
+     * Gets the time at which the search stops in the middle of an
+     * iteration.
+     *
+     * @param color the color of the player to move
+     * @return the time in milliseconds, Long.MAX_VALUE for none
+     */
+    public long hardMillis(int color) {
+        if (infinite) {
+            return Long.MAX_VALUE;
+        }
+        if (moveTime != NONE) {
+            return moveTime;
+        }
+        if (time[color] == NONE) {
+            return Long.MAX_VALUE;
+        }
+        int moves = movesToGo > 0 ? movesToGo : DEFAULT_MOVES_TO_GO;
+        long available = available(color);
+        long soft = available / moves + increment[color] * 3 / 4;
+        return Math.min(soft * HARD_FACTOR, available * 3 / 4);
+    }
+
+    //
+    // Gets the time on the clock that may be spent, keeping some back
+    // for the overhead of making the move
+    //
+    private long available(int color) {
+        return Math.max(1, time[color] - MOVE_OVERHEAD);
+    }
+}
@@ -0,0 +1,18 @@
+package chess;
+
+/**
+ * SearchListener hears about the progress of a running Search, such as
+ * an engine protocol streaming its thinking. It is called on the
+ * searching thread, so it must be quick and thread safe.
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public interface SearchListener {
+    /**
+     * Receives the result of every completed iteration.
+     *
+     * @param result the best move of the iteration, its line and the work so far
+     */
+    void iteration(SearchResult result);
+}
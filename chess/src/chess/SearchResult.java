@@ -0,0 +1,91 @@
+package chess;
+
+/**
+ * SearchResult is the outcome of a Search: the best move found, its
+ * score and the principal variation the score is based on.
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public class SearchResult {
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long millis;
+    private final int[] pv;
+
+    /**
+     * Constructor for a SearchResult.
+     *
+     * @param score the score of the best move for the side to move
+     * @param depth the deepest completed iteration
+     * @param nodes the number of positions visited
+     * @param millis the time spent searching
+     * @param pv the principal variation, starting with the best move
+     */
+    public SearchResult(int score, int depth, long nodes, long millis, int[] pv) {
+        this.bestMove = pv.length > 0 ? pv[0] : Move.NONE;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.millis = millis;
+        this.pv = pv;
+    }
+
+    /**
+     * Gets the best move found.
+     *
+     * @return the packed move, or Move.NONE if the side to move cannot move
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Gets the score of the best move from the point of view of the
+     * side to move.
+     *
+     * @return the score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Gets the deepest completed iteration.
+     *
+     * @return the depth in plies
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Gets the number of positions visited.
+     *
+     * @return the node count
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gets the time spent searching.
+     *
+     * @return the time in milliseconds
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Gets the principal variation, the line of best play the
+     * score is based on.
+     *
+     * @return the packed moves, starting with the best move
+     */
+    public int[] getPv() {
+        return pv.clone();
+    }
+}
@@ -0,0 +1,100 @@
+package chess;
+
+/**
+ * See is the static exchange evaluator. It works out what a capture
+ * wins or loses once every piece attacking the square has joined in,
+ * each side recapturing with its least valuable attacker and stopping
+ * as soon as going on would lose more. Attackers are kept as a
+ * bitboard, and a slider hidden behind a piece that captured is added
+ * when the piece leaves, so batteries and x-rays are counted.
+ *
+ * Only the one square is looked at: pins, checks and threats elsewhere
+ * are ignored, which makes it cheap enough to run on every capture.
+ * A See keeps its exchange buffer to avoid allocating per call, so
+ * each thread needs its own.
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public class See {
+    //
+    // Material of each piece type from Evaluation, with the king worth
+    // more than all the others together so it only captures last
+    //
+    private static final int[] VALUES = {0, Evaluation.MATERIAL[Piece.PAWN], Evaluation.MATERIAL[Piece.KNIGHT],
+        Evaluation.MATERIAL[Piece.BISHOP], Evaluation.MATERIAL[Piece.ROOK], Evaluation.MATERIAL[Piece.QUEEN], 20000};
+    //
+    // Longest possible exchange: every piece on the board captures once
+    //
+    private static final int MAX_CAPTURES = 33;
+    private final int[] gain = new int[MAX_CAPTURES];
+
+    /**
+     * Gets the material the side to move wins with a move once the
+     * exchange on its destination square is played out.
+     *
+     * @param position the Position before the move, left unchanged
+     * @param move a packed capture or promotion of the side to move
+     * @return the material won, negative when the move loses material
+     */
+    public int see(Position position, int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int promotion = Move.promotion(move);
+        long occupied = position.getOccupied() ^ (1L << from);
+        gain[0] = VALUES[Piece.type(Move.captured(move))];
+        int onSquare = VALUES[Piece.type(Move.piece(move))];
+        if (promotion != Piece.EMPTY) {
+            gain[0] += VALUES[promotion] - VALUES[Piece.PAWN];
+            onSquare = VALUES[promotion];
+        }
+        if (Move.flag(move) == Move.EN_PASSANT) {
+            occupied ^= 1L << ((from & ~7) | (to & 7));
+        }
+        long attackers = position.attackersTo(to, occupied);
+        int side = position.getSideToMove() ^ 1;
+        int depth = 0;
+        while (true) {
+            long ours = attackers & position.getColorPieces(side);
+            if (ours == 0) {
+                break;
+            }
+            int type = leastValuable(position, ours, side);
+            long attacker = Long.lowestOneBit(ours & position.getPieces(Piece.make(side, type)));
+            // a king cannot capture onto a square the other side still attacks
+            if (type == Piece.KING && (attackers & position.getColorPieces(side ^ 1)) != 0) {
+                break;
+            }
+            depth++;
+            gain[depth] = onSquare - gain[depth - 1];
+            // the capture cannot help this side even unanswered, so it is
+            // not made, which keeps the sign of the result
+            if (Math.max(-gain[depth - 1], gain[depth]) < 0) {
+                depth--;
+                break;
+            }
+            occupied ^= attacker;
+            attackers = position.attackersTo(to, occupied);
+            onSquare = VALUES[type];
+            side ^= 1;
+        }
+        // each side only goes on with the exchange when it pays
+        while (depth > 0) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+            depth--;
+        }
+        return gain[0];
+    }
+
+    //
+    // Finds the type of the cheapest of the given attackers
+    //
+    private static int leastValuable(Position position, long attackers, int color) {
+        for (int type = Piece.PAWN; type <= Piece.KING; type++) {
+            if ((attackers & position.getPieces(Piece.make(color, type))) != 0) {
+                return type;
+            }
+        }
+        return Piece.EMPTY;
+    }
+}
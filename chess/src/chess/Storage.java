@@ -1,122 +1,245 @@
 package chess;
 
 import java.awt.Color;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
- * Storage is used to store the state of a chess game 
- * as a 2 dimensional String array to save space. 
- * 
+ * Storage is used to store the state of a chess game in a compact
+ * binary format.
+ *
+ * A position takes POSITION_BYTES bytes: 32 bytes with the piece code
+ * of every square in a nibble, the low nibble holding the lower square,
+ * a byte with the side to move in bit 0 and the castling rights in bits
+ * 1-4, a byte with the en passant square or 0xFF, and two shorts with
+ * the halfmove clock and the fullmove number. Numbers are big endian.
+ *
+ * A saved game starts with a magic number and a version, followed by
+ * the names of both players and the position.
+ *
  * @author Matthew Shew
  * @version 1.0
  */
-public class Storage implements java.io.Serializable {
+public class Storage {
     /**
-     * Generated serial version ID.
+     * Number of bytes of one stored position.
      */
-    private static final long serialVersionUID = 4334572033429989227L;
-    protected String[][] saved;
+    public static final int POSITION_BYTES = 38;
+    /**
+     * File name extension of saved games.
+     */
+    public static final String EXTENSION = ".chess";
+    //
+    // "CHES" in ASCII, the first bytes of every saved game
+    //
+    private static final int MAGIC = 0x43484553;
+    private static final int VERSION = 1;
+    private static final int NO_EP = 0xFF;
+    private static final String[] NAMES = {"", "pawn", "knight", "bishop", "rook", "queen", "king"};
+    protected Position position;
     protected Player p1;
     protected Player p2;
     protected Player turn;
-    
+
     /**
-     * Constructor for a Storage object which stores the state of a chess 
-     * game in a 2-dimensional String array.
-     * 
-     * @param board a copy of the board to be saved
+     * Constructor for a Storage object which stores a Position
+     * and the players of the game.
+     *
+     * @param position the Position to be saved
      * @param p1 Player 1 in the game
      * @param p2 Player 2 in the game
      * @param turn Player who's turn it is
      */
-    public Storage(Tile[][] board, Player p1, Player p2, Player turn) {
+    public Storage(Position position, Player p1, Player p2, Player turn) {
         super();
-        saved = new String[Board.SIZE][Board.SIZE];
+        this.position = position.copy();
         this.p1 = p1;
         this.p2 = p2;
         this.turn = turn;
-        convert(board, saved);
     }
-    
-    //
-    // Converts the board game into an equivalent 
-    // state but using Strings to save space
-    //
-    private void convert(Tile[][] board, String[][] saved) {
-        ChessPiece temp;
-        for (int y = 0; y < Board.SIZE; y++) {
-            for (int x = 0; x < Board.SIZE; x++) {
-                if ((temp =  board[x][y].getCp()) != null) {
-                    saved[x][y] = temp.toString();
-                } else {
-                    saved[x][y] = "";
-                }             
+
+    /**
+     * Writes a position at the current place of the buffer.
+     *
+     * @param position the Position to write
+     * @param buffer the buffer, with at least POSITION_BYTES left
+     */
+    public static void writePosition(Position position, ByteBuffer buffer) {
+        for (int sq = 0; sq < Position.SQUARES; sq += 2) {
+            buffer.put((byte) (position.getPiece(sq) | position.getPiece(sq + 1) << 4));
+        }
+        buffer.put((byte) (position.getSideToMove() | position.getCastling() << 1));
+        int ep = position.getEpSquare();
+        buffer.put((byte) (ep == Position.NO_SQUARE ? NO_EP : ep));
+        buffer.putShort((short) position.getHalfmoveClock());
+        buffer.putShort((short) position.getFullmoveNumber());
+    }
+
+    /**
+     * Reads a position from the current place of the buffer.
+     *
+     * @param buffer the buffer, with at least POSITION_BYTES left
+     * @return the Position
+     * @throws IllegalArgumentException if the bytes are not a valid position
+     */
+    public static Position readPosition(ByteBuffer buffer) {
+        Position position = new Position();
+        readPosition(buffer, position);
+        return position;
+    }
+
+    /**
+     * Reads a position from the current place of the buffer into an
+     * existing Position, so many positions can be read without
+     * allocating.
+     *
+     * @param buffer the buffer, with at least POSITION_BYTES left
+     * @param position the Position to overwrite
+     * @throws IllegalArgumentException if the bytes are not a valid position
+     */
+    public static void readPosition(ByteBuffer buffer, Position position) {
+        position.clear();
+        for (int sq = 0; sq < Position.SQUARES; sq += 2) {
+            int pair = buffer.get();
+            position.setPiece(sq & 7, sq >>> 3, checkPiece(pair & 0xF));
+            position.setPiece((sq + 1) & 7, sq >>> 3, checkPiece(pair >>> 4 & 0xF));
+        }
+        int flags = buffer.get();
+        position.setSideToMove(flags & 1);
+        position.setCastling(flags >>> 1 & 0xF);
+        int ep = buffer.get() & 0xFF;
+        if (ep != NO_EP) {
+            if (ep >= Position.SQUARES) {
+                throw new IllegalArgumentException("Bad en passant square: " + ep);
             }
+            position.setEpSquare(ep);
         }
+        position.setHalfmoveClock(buffer.getShort());
+        position.setFullmoveNumber(buffer.getShort());
     }
-    
+
     /**
-     * Extracts the info from the 2-dimensional string saved
-     * to create a two dimensional array of tiles with the same 
-     * chess piece placement. 
-     * 
-     * @return a copy of a the chess game that was saved in this 
+     * Writes the game to a file, replacing it if it exists.
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
      */
+    public void save(Path file) throws IOException {
+        byte[] name1 = p1.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] name2 = p2.getName().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 1 + 2 + name1.length + 2 + name2.length + POSITION_BYTES);
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.putShort((short) name1.length);
+        buffer.put(name1);
+        buffer.putShort((short) name2.length);
+        buffer.put(name2);
+        writePosition(position, buffer);
+        Files.write(file, buffer.array());
+    }
 
-    public Tile[][] extract() {
-        if (saved == null) {
-            return null;
+    /**
+     * Reads a game saved to a file.
+     *
+     * @param file the file to read
+     * @return the saved game
+     * @throws IOException if the file cannot be read or is not a saved game
+     */
+    public static Storage load(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        try {
+            if (buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+                throw new IOException("Not a saved chess game: " + file);
+            }
+            Player p1 = new Player(readName(buffer), "WHITE");
+            Player p2 = new Player(readName(buffer), "BLACK");
+            Position position = readPosition(buffer);
+            return new Storage(position, p1, p2, position.getSideToMove() == Piece.WHITE ? p1 : p2);
+        } catch (BufferUnderflowException | IllegalArgumentException exc) {
+            throw new IOException("Damaged saved chess game: " + file, exc);
         }
+    }
+
+    /**
+     * Gets a copy of the saved Position.
+     *
+     * @return the Position that was saved in this
+     */
+    public Position position() {
+        return position.copy();
+    }
+
+    /**
+     * Creates a 2-dimensional array of tiles with the chess pieces of
+     * the saved position, giving every piece to its player.
+     *
+     * @return a copy of a the chess game that was saved in this
+     */
+    public Tile[][] extract() {
         ChessPiece cp;
-        Tile[][] savedBoard = new Tile[Board.SIZE][Board.SIZE];      
+        Tile[][] savedBoard = new Tile[Board.SIZE][Board.SIZE];
         for (int y = 0; y < 8; y++) {
             for (int x = 0; x < 8; x++) {
                 if ((x + y) % 2 == 0) {
-                    savedBoard[x][y] = new Tile(Color.darkGray, x, y);                           
+                    savedBoard[x][y] = new Tile(Color.darkGray, x, y);
                 } else {
-                    savedBoard[x][y] = new Tile(Color.lightGray, x, y);        
+                    savedBoard[x][y] = new Tile(Color.lightGray, x, y);
                 }
-                if ((cp = type(saved[x][y], x, y)) != null) {
+                if ((cp = type(position.getPiece(x, y), x, y)) != null) {
                     savedBoard[x][y].setCp(cp);
-                }       
+                    cp.getPlayer().addPiece(cp);
+                }
             }
         }
         return savedBoard;
     }
 
-
-
     //
-    // type returns the chess piece that the given 
-    // string represents. 
+    // type returns the chess piece that the given
+    // piece code represents, named after its type and tile
     //
-    private ChessPiece type(String piece, int xco, int yco) {
-        if (piece.equals("")) {
+    private ChessPiece type(int piece, int xco, int yco) {
+        if (piece == Piece.EMPTY) {
             return null;
         }
-        String color = piece.substring(0,1);
-        String type = piece.substring(1);
-        Player owner;
-        if (color.equalsIgnoreCase(p1.getColor().substring(0, 1))) {
-            owner = p1;
-        } else {
-            owner = p2;
+        Player owner = Piece.color(piece) == Piece.WHITE ? p1 : p2;
+        String name = NAMES[Piece.type(piece)] + xco + yco;
+        switch (Piece.type(piece)) {
+            case Piece.PAWN:
+                return new Pawn(xco, yco, owner, name);
+            case Piece.ROOK:
+                return new Rook(xco, yco, owner, name);
+            case Piece.BISHOP:
+                return new Bishop(xco, yco, owner, name);
+            case Piece.KNIGHT:
+                return new Knight(xco, yco, owner, name);
+            case Piece.KING:
+                return new King(xco, yco, owner, name);
+            default:
+                return new Queen(xco, yco, owner, name);
         }
-        if (type.equalsIgnoreCase("pawn")) {
-            return new Pawn(xco, yco, owner, "temp");
-        } else if (type.equalsIgnoreCase("rook")) {
-            return new Rook(xco, yco, owner, "temp");
-        } else if (type.equalsIgnoreCase("bishop")) {
-            return new Bishop(xco, yco, owner, "temp");
-        } else if (type.equalsIgnoreCase("knight")) {
-            return new Knight(xco, yco, owner, "temp");
-        } else if (type.equalsIgnoreCase("king")) {
-            return new King(xco, yco, owner, "temp");
-        } else if (type.equalsIgnoreCase("queen")) {
-            return new Queen(xco, yco, owner, "temp");
-        } else {
-            return null;
+    }
+
+    //
+    // Checks that a nibble read from a stored position is a piece code
+    //
+    private static int checkPiece(int piece) {
+        if (piece != Piece.EMPTY && (Piece.type(piece) < Piece.PAWN || Piece.type(piece) > Piece.KING)) {
+            throw new IllegalArgumentException("Bad piece code: " + piece);
         }
+        return piece;
     }
 
-        
+    //
+    // Reads a player name written as its length and UTF-8 bytes
+    //
+    private static String readName(ByteBuffer buffer) {
+        byte[] name = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
 }
@@ -0,0 +1,374 @@
+package chess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Tablebase knows the exact result of every position with a king and
+ * one queen, rook or pawn against a lone king, and how many plies it
+ * takes to mate. The tables are generated once by retrograde analysis
+ * and saved in a directory, one byte per position, then memory-mapped
+ * so probing them costs no heap and no search.
+ *
+ * A table is indexed from the side with the piece, called the strong
+ * side: positions where black has the piece are mirrored top to bottom
+ * and looked up as white. A byte holds 0 for a draw, n &gt; 0 when the
+ * side to move mates in n plies and -n-1 when it is mated in n plies.
+ *
+ * Usage:
+ *   java chess.Tablebase generate dir
+ *   java chess.Tablebase probe dir fen
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public class Tablebase {
+    /**
+     * Most pieces, kings included, of a position in the tables.
+     */
+    public static final int MAX_PIECES = 3;
+    /**
+     * Score returned for a position that is not in the tables.
+     */
+    public static final int NOT_FOUND = Integer.MIN_VALUE;
+    //
+    // Types of the piece of the strong side with a table, in the order
+    // they are generated so promotions find their table ready
+    //
+    private static final int[] TYPES = {Piece.QUEEN, Piece.ROOK, Piece.PAWN};
+    private static final String[] NAMES = {"", "KPK", "", "", "KRK", "KQK"};
+    private static final String SUFFIX = ".tb";
+    //
+    // Positions of a table: side to move, strong king, weak king and piece
+    //
+    private static final int SIZE = 2 * 64 * 64 * 64;
+    private static final byte ILLEGAL = Byte.MIN_VALUE;
+    private static final int MAX_PLIES = 126;
+    private final ByteBuffer[] tables = new ByteBuffer[7];
+
+    /**
+     * Constructor for a Tablebase reading the tables of a directory.
+     * Missing tables are left out and their positions not found.
+     *
+     * @param dir the directory holding the tables
+     * @throws IOException if a table cannot be read
+     */
+    public Tablebase(Path dir) throws IOException {
+        for (int type : TYPES) {
+            Path file = dir.resolve(NAMES[type] + SUFFIX);
+            if (!Files.isRegularFile(file)) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() != SIZE) {
+                    throw new IOException("Not a tablebase: " + file);
+                }
+                tables[type] = channel.map(FileChannel.MapMode.READ_ONLY, 0, SIZE);
+            }
+        }
+    }
+
+    //
+    // Wraps tables that were just generated
+    //
+    private Tablebase(byte[][] generated) {
+        for (int type : TYPES) {
+            if (generated[type] != null) {
+                tables[type] = ByteBuffer.wrap(generated[type]);
+            }
+        }
+    }
+
+    /**
+     * main generates the tables into a directory or prints the result
+     * and best move of a position.
+     *
+     * @param args the mode, the directory and the position
+     * @throws IOException if the tables cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 2 && args[0].equals("generate")) {
+            generate(Paths.get(args[1]));
+        } else if (args.length >= 3 && args[0].equals("probe")) {
+            Tablebase tablebase = new Tablebase(Paths.get(args[1]));
+            Position position = Fen.parse(String.join(" ", Arrays.copyOfRange(args, 2, args.length)));
+            int value = tablebase.probe(position);
+            if (value == NOT_FOUND) {
+                System.out.println("not found");
+                return;
+            }
+            String result = value == 0 ? "draw" : value > 0 ? "mate in " + value + " plies"
+                    : "mated in " + (-value - 1) + " plies";
+            int move = tablebase.bestMove(position);
+            System.out.println(result + (move == Move.NONE ? "" : ", " + new San().toSan(position, move)));
+        } else {
+            System.out.println("Usage: java chess.Tablebase generate dir");
+            System.out.println("       java chess.Tablebase probe dir fen");
+        }
+    }
+
+    /**
+     * Generates every table and writes it to the directory.
+     *
+     * @param dir the directory to write, created if missing
+     * @throws IOException if a table cannot be written
+     */
+    public static void generate(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        byte[][] generated = new byte[7][];
+        for (int type : TYPES) {
+            long start = System.currentTimeMillis();
+            generated[type] = generate(type, new Tablebase(generated));
+            Files.write(dir.resolve(NAMES[type] + SUFFIX), generated[type]);
+            System.out.println(NAMES[type] + ": " + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    /**
+     * Looks up the Position.
+     *
+     * @param position the Position to look up
+     * @return 0 for a draw, n &gt; 0 if the side to move mates in n plies,
+     *         -n-1 if it is mated in n plies, or NOT_FOUND
+     */
+    public int probe(Position position) {
+        int index = index(position);
+        if (index < 0) {
+            return NOT_FOUND;
+        }
+        int value = tables[type(position)].get(index);
+        return value == ILLEGAL ? NOT_FOUND : value;
+    }
+
+    /**
+     * Scores the Position the way Search does, so a mate found in the
+     * tables sorts with the mates found by searching.
+     *
+     * @param position the Position to look up
+     * @param ply the distance of the Position from the root of the search
+     * @return the score for the side to move, or NOT_FOUND
+     */
+    public int score(Position position, int ply) {
+        int value = probe(position);
+        if (value == NOT_FOUND || value == 0) {
+            return value;
+        }
+        return value > 0 ? Search.MATE - ply - value : -Search.MATE + ply - value - 1;
+    }
+
+    /**
+     * Picks the move keeping the best result: the fastest mate when
+     * winning, a draw when drawing and the slowest mate when losing.
+     *
+     * @param position the Position to move in, left unchanged
+     * @return the packed move, or Move.NONE if not found or without moves
+     */
+    public int bestMove(Position position) {
+        if (probe(position) == NOT_FOUND) {
+            return Move.NONE;
+        }
+        MoveList moves = new MoveList();
+        position.generateLegalMoves(moves);
+        int best = Move.NONE;
+        int bestRank = Integer.MIN_VALUE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            position.makeMove(move);
+            // a capture leaves two kings, a minor promotion too little to mate
+            int value = probe(position);
+            position.unmakeMove(move);
+            int rank = rank(value == NOT_FOUND ? 0 : before(value));
+            if (rank > bestRank) {
+                bestRank = rank;
+                best = move;
+            }
+        }
+        return best;
+    }
+
+    //
+    // Gets the value of a position for the side to move from the value
+    // of the position after its move, which is for the opponent
+    //
+    private static int before(int value) {
+        if (value > 0) {
+            return -value - 2;
+        }
+        return -value;
+    }
+
+    //
+    // Orders values for the side to move: quick wins first, then draws,
+    // then slow losses. A loss in n plies ranks n - 999.
+    //
+    private static int rank(int value) {
+        if (value > 0) {
+            return 1000 - value;
+        }
+        return value == 0 ? 0 : -1000 - value;
+    }
+
+    //
+    // Finds the table of the Position, or returns 0 if it has none
+    //
+    private int type(Position position) {
+        long others = position.getOccupied() & ~position.getPieces(Piece.make(Piece.WHITE, Piece.KING))
+                & ~position.getPieces(Piece.make(Piece.BLACK, Piece.KING));
+        if (Long.bitCount(others) != 1) {
+            return 0;
+        }
+        return Piece.type(position.getPiece(Long.numberOfTrailingZeros(others)));
+    }
+
+    //
+    // Gets the index of the Position in its table, or -1 if it is not
+    // in a loaded table
+    //
+    private int index(Position position) {
+        if (Long.bitCount(position.getOccupied()) != MAX_PIECES || position.getCastling() != 0) {
+            return -1;
+        }
+        int type = type(position);
+        if (type == 0 || tables[type] == null) {
+            return -1;
+        }
+        long others = position.getOccupied() & ~position.getPieces(Piece.make(Piece.WHITE, Piece.KING))
+                & ~position.getPieces(Piece.make(Piece.BLACK, Piece.KING));
+        int square = Long.numberOfTrailingZeros(others);
+        int strong = Piece.color(position.getPiece(square));
+        int strongKing = position.kingSquare(strong);
+        int weakKing = position.kingSquare(strong ^ 1);
+        if (weakKing == Position.NO_SQUARE || strongKing == Position.NO_SQUARE) {
+            return -1;
+        }
+        int flip = strong == Piece.WHITE ? 0 : 56;
+        int toMove = position.getSideToMove() == strong ? 0 : 1;
+        return index(toMove, strongKing ^ flip, weakKing ^ flip, square ^ flip);
+    }
+
+    private static int index(int toMove, int strongKing, int weakKing, int square) {
+        return ((toMove * 64 + strongKing) * 64 + weakKing) * 64 + square;
+    }
+
+    //
+    // Generates the table of a piece type by retrograde analysis. The
+    // moves of every position are listed once, then the results spread
+    // backwards from the mates one ply per pass: a position wins in n
+    // plies if a move reaches a loss in n - 1, and loses in n if every
+    // move reaches a win in at most n - 1. What is left is drawn.
+    //
+    private static byte[] generate(int type, Tablebase done) {
+        byte[] values = new byte[SIZE];
+        boolean[] resolved = new boolean[SIZE];
+        Arrays.fill(values, ILLEGAL);
+        // moves staying in the table, and the best result of the others
+        int[] first = new int[SIZE + 1];
+        int[] edges = new int[SIZE * 8];
+        int edgeCount = 0;
+        int[] outside = new int[SIZE];
+        Position position = new Position();
+        MoveList moves = new MoveList();
+        for (int index = 0; index < SIZE; index++) {
+            first[index] = edgeCount;
+            if (!setUp(position, type, index)) {
+                continue;
+            }
+            moves.clear();
+            position.generateLegalMoves(moves);
+            values[index] = 0;
+            outside[index] = Integer.MIN_VALUE;
+            if (moves.size() == 0) {
+                resolved[index] = true;
+                values[index] = (byte) (position.isInCheck(position.getSideToMove()) ? -1 : 0);
+                continue;
+            }
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                position.makeMove(move);
+                if (Move.captured(move) != Piece.EMPTY || Move.promotion(move) != Piece.EMPTY) {
+                    int value = done.probe(position);
+                    outside[index] = Math.max(outside[index], rank(value == NOT_FOUND ? 0 : before(value)));
+                } else {
+                    if (edgeCount == edges.length) {
+                        edges = Arrays.copyOf(edges, edges.length * 2);
+                    }
+                    edges[edgeCount++] = indexAfter(position);
+                }
+                position.unmakeMove(move);
+            }
+        }
+        first[SIZE] = edgeCount;
+        int[] changed = new int[SIZE];
+        for (int n = 1; n <= MAX_PLIES; n++) {
+            int count = 0;
+            for (int index = 0; index < SIZE; index++) {
+                if (resolved[index] || values[index] == ILLEGAL) {
+                    continue;
+                }
+                int best = outside[index];
+                boolean allResolved = true;
+                for (int e = first[index]; e < first[index + 1]; e++) {
+                    int child = edges[e];
+                    if (resolved[child]) {
+                        best = Math.max(best, rank(before(values[child])));
+                    } else {
+                        allResolved = false;
+                    }
+                }
+                // a win in n, or a loss in n once every move is known to lose
+                if (best == rank(n)) {
+                    values[index] = (byte) n;
+                    changed[count++] = index;
+                } else if (best < 0 && allResolved && best + 999 <= n) {
+                    values[index] = (byte) (-(best + 999) - 1);
+                    changed[count++] = index;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                resolved[changed[i]] = true;
+            }
+        }
+        return values;
+    }
+
+    //
+    // Gets the index of a generated position after a quiet move, which
+    // always stays in the table being generated
+    //
+    private static int indexAfter(Position position) {
+        int strongKing = position.kingSquare(Piece.WHITE);
+        int weakKing = position.kingSquare(Piece.BLACK);
+        long others = position.getColorPieces(Piece.WHITE) & ~(1L << strongKing);
+        int toMove = position.getSideToMove() == Piece.WHITE ? 0 : 1;
+        return index(toMove, strongKing, weakKing, Long.numberOfTrailingZeros(others));
+    }
+
+    //
+    // Sets up the position of an index with white as the strong side,
+    // returning false if it cannot happen in a game
+    //
+    private static boolean setUp(Position position, int type, int index) {
+        int square = index & 63;
+        int weakKing = (index >>> 6) & 63;
+        int strongKing = (index >>> 12) & 63;
+        int toMove = index >>> 18;
+        if (square == weakKing || square == strongKing || weakKing == strongKing
+                || (type == Piece.PAWN && (square < 8 || square >= 56))) {
+            return false;
+        }
+        position.clear();
+        position.setPiece(strongKing & 7, strongKing >>> 3, Piece.make(Piece.WHITE, Piece.KING));
+        position.setPiece(weakKing & 7, weakKing >>> 3, Piece.make(Piece.BLACK, Piece.KING));
+        position.setPiece(square & 7, square >>> 3, Piece.make(Piece.WHITE, type));
+        position.setSideToMove(toMove == 0 ? Piece.WHITE : Piece.BLACK);
+        // the side that just moved cannot have left its king attacked
+        return !position.isInCheck(position.getSideToMove() ^ 1);
+    }
+}
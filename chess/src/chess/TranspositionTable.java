@@ -0,0 +1,211 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * TranspositionTable remembers the results of positions the Search has
+ * already scored, keyed by their Zobrist hash, so a position reached
+ * again through another move order is not searched twice.
+ *
+ * The table is two arrays of primitive longs, one holding the hash and
+ * one holding the packed entry, with a power of two number of slots so
+ * a hash is turned into a slot with a mask. An entry packs the best
+ * move in bits 0-25, the score in bits 26-41, the depth in bits 42-49,
+ * the bound in bits 50-51 and the search age in bits 52-59.
+ *
+ * One table can be shared by several searching threads without locks.
+ * The hash is stored exclusive or'ed with its entry, so a slot that was
+ * torn by two threads writing it at once no longer matches its hash and
+ * simply reads as a miss.
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public class TranspositionTable {
+    /**
+     * Bound of a score that is at least the true score.
+     */
+    public static final int UPPER = 1;
+    /**
+     * Bound of a score that is at most the true score.
+     */
+    public static final int LOWER = 2;
+    /**
+     * Bound of an exact score.
+     */
+    public static final int EXACT = 3;
+    /**
+     * Size of the table when none is given, in megabytes.
+     */
+    public static final int DEFAULT_MB = 16;
+    private static final int ENTRY_BYTES = 16;
+
+    /**
+     * Replacement decides whether a new entry overwrites the one
+     * already in its slot.
+     */
+    public enum Replacement {
+        /**
+         * Always overwrite.
+         */
+        ALWAYS,
+        /**
+         * Overwrite only with an entry searched at least as deep.
+         */
+        DEPTH,
+        /**
+         * Overwrite entries from older searches, and entries of the
+         * current search that were searched less deep.
+         */
+        AGE_AND_DEPTH
+    }
+
+    private final long[] keys;
+    private final long[] entries;
+    private final int mask;
+    private final Replacement replacement;
+    private int age;
+
+    /**
+     * Constructor for a TranspositionTable of the default size that
+     * replaces shallower and older entries.
+     */
+    public TranspositionTable() {
+        this(DEFAULT_MB, Replacement.AGE_AND_DEPTH);
+    }
+
+    /**
+     * Constructor for a TranspositionTable using at most the given
+     * amount of memory, rounded down to a power of two number of slots.
+     *
+     * @param megabytes the memory for the table
+     * @param replacement when a new entry overwrites an old one
+     */
+    public TranspositionTable(int megabytes, Replacement replacement) {
+        long slots = Math.max(1L, (long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+        int size = (int) Long.highestOneBit(Math.min(slots, 1L << 30));
+        keys = new long[size];
+        entries = new long[size];
+        mask = size - 1;
+        this.replacement = replacement;
+    }
+
+    /**
+     * Gets the number of slots in the table.
+     *
+     * @return the number of slots
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Empties the table.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(entries, 0L);
+        age = 0;
+    }
+
+    /**
+     * Marks the start of a new search so entries of older searches
+     * can be told apart.
+     */
+    public void newSearch() {
+        age = (age + 1) & 0xFF;
+    }
+
+    /**
+     * Looks up the entry of a position.
+     *
+     * @param hash the Zobrist hash of the position
+     * @return the packed entry, or 0 if the position is not stored
+     */
+    public long probe(long hash) {
+        int slot = (int) hash & mask;
+        long entry = entries[slot];
+        if ((keys[slot] ^ entry) != hash) {
+            return 0L;
+        }
+        return entry;
+    }
+
+    /**
+     * Stores the result of searching a position, if the
+     * replacement policy allows it.
+     *
+     * @param hash the Zobrist hash of the position
+     * @param move the best move found, or Move.NONE
+     * @param score the score of the position
+     * @param depth the depth the position was searched to
+     * @param bound UPPER, LOWER or EXACT
+     */
+    public void store(long hash, int move, int score, int depth, int bound) {
+        int slot = (int) hash & mask;
+        long old = entries[slot];
+        boolean same = (keys[slot] ^ old) == hash;
+        if (old != 0L && !same) {
+            if (replacement == Replacement.DEPTH && depth < depth(old)) {
+                return;
+            }
+            if (replacement == Replacement.AGE_AND_DEPTH && age(old) == age && depth < depth(old)) {
+                return;
+            }
+        }
+        if (move == Move.NONE && same) {
+            move = move(old);
+        }
+        long entry = (move & 0x3FFFFFFL) | ((long) (score + 32768) << 26)
+                | ((long) depth << 42) | ((long) bound << 50) | ((long) age << 52);
+        keys[slot] = hash ^ entry;
+        entries[slot] = entry;
+    }
+
+    /**
+     * Gets the best move of a packed entry.
+     *
+     * @param entry the packed entry
+     * @return the packed move, or Move.NONE
+     */
+    public static int move(long entry) {
+        return (int) (entry & 0x3FFFFFFL);
+    }
+
+    /**
+     * Gets the score of a packed entry.
+     *
+     * @param entry the packed entry
+     * @return the score
+     */
+    public static int score(long entry) {
+        return (int) ((entry >>> 26) & 0xFFFF) - 32768;
+    }
+
+    /**
+     * Gets the depth of a packed entry.
+     *
+     * @param entry the packed entry
+     * @return the depth in plies
+     */
+    public static int depth(long entry) {
+        return (int) ((entry >>> 42) & 0xFF);
+    }
+
+    /**
+     * Gets the bound of a packed entry.
+     *
+     * @param entry the packed entry
+     * @return UPPER, LOWER or EXACT
+     */
+    public static int bound(long entry) {
+        return (int) ((entry >>> 50) & 0x3);
+    }
+
+    //
+    // Gets the search age of a packed entry
+    //
+    private static int age(long entry) {
+        return (int) ((entry >>> 52) & 0xFF);
+    }
+}
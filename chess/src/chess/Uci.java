@@ -0,0 +1,431 @@
+package chess;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+/**
+ * Uci runs the engine without a window, speaking the Universal Chess
+ * Interface on standard input and output so tournament managers and
+ * scripts can play it. It takes positions with "position", searches
+ * with "go" and its depth, nodes, movetime, clock, infinite and ponder
+ * limits, and streams an "info" line with the depth, score, nodes,
+ * speed and principal variation of every completed iteration.
+ *
+ * The search runs on its own thread, so "stop", "ponderhit" and
+ * "isready" are answered while it thinks.
+ *
+ * Usage: java chess.Uci
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public class Uci {
+    private static final String NAME = "chess";
+    private static final String AUTHOR = "Matthew Shew";
+    private static final int MAX_HASH_MB = 4096;
+    private static final int MAX_THREADS = 256;
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+    private final BufferedReader in;
+    private final PrintStream out;
+    private final Position position = Position.startPosition();
+    private final Position replay = new Position();
+    private TranspositionTable table = new TranspositionTable();
+    private int threads = 1;
+    private Tablebase tablebase;
+    private ParallelSearch search;
+    private Thread thinker;
+    private SearchLimits limits;
+    //
+    // Set while the search of "go infinite" or "go ponder" runs, since
+    // its best move must wait for "stop" or "ponderhit"
+    //
+    private boolean holding;
+    private final Object lock = new Object();
+    //
+    // The end of the time given by "ponderhit", or NO_DEADLINE. A
+    // search sets its deadlines when it starts, so the ponderhit is
+    // sent again after every iteration in case it came before that.
+    //
+    private volatile long ponderDeadline = NO_DEADLINE;
+
+    /**
+     * Constructor for a Uci reading commands and writing replies.
+     *
+     * @param in the commands
+     * @param out the replies
+     */
+    public Uci(BufferedReader in, PrintStream out) {
+        this.in = in;
+        this.out = out;
+        newSearch();
+    }
+
+    /**
+     * main runs the engine on standard input and output.
+     *
+     * @param args not used
+     * @throws IOException if the commands cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        new Uci(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)), System.out).run();
+    }
+
+    /**
+     * Answers commands until "quit" or the end of the input.
+     *
+     * @throws IOException if the commands cannot be read
+     */
+    public void run() throws IOException {
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!command(line.trim())) {
+                    break;
+                }
+            }
+        } finally {
+            finish(true);
+            search.shutdown();
+        }
+    }
+
+    //
+    // Carries out one command, returning false on "quit". Unknown
+    // commands are ignored as the protocol asks.
+    //
+    private boolean command(String line) {
+        String[] words = line.split("\\s+");
+        switch (words[0]) {
+            case "uci":
+                send("id name " + NAME);
+                send("id author " + AUTHOR);
+                send("option name Hash type spin default " + TranspositionTable.DEFAULT_MB + " min 1 max "
+                        + MAX_HASH_MB);
+                send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                send("option name Ponder type check default false");
+                send("option name TablebasePath type string default <empty>");
+                send("uciok");
+                break;
+            case "isready":
+                send("readyok");
+                break;
+            case "setoption":
+                finish(false);
+                setOption(words);
+                break;
+            case "ucinewgame":
+                finish(false);
+                table.clear();
+                break;
+            case "position":
+                finish(false);
+                setPosition(words);
+                break;
+            case "go":
+                finish(false);
+                go(words);
+                break;
+            case "stop":
+                finish(true);
+                break;
+            case "ponderhit":
+                ponderhit();
+                break;
+            case "quit":
+                return false;
+            default:
+                break;
+        }
+        return true;
+    }
+
+    //
+    // Sets an option from "setoption name <name> value <value>", where
+    // the name and the value may hold spaces
+    //
+    private void setOption(String[] words) {
+        StringBuilder name = new StringBuilder();
+        StringBuilder value = new StringBuilder();
+        StringBuilder part = null;
+        for (int i = 1; i < words.length; i++) {
+            if (words[i].equals("name")) {
+                part = name;
+            } else if (words[i].equals("value")) {
+                part = value;
+            } else if (part != null) {
+                part.append(part.length() > 0 ? " " : "").append(words[i]);
+            }
+        }
+        try {
+            switch (name.toString().toLowerCase()) {
+                case "hash":
+                    int megabytes = Math.max(1, Math.min(MAX_HASH_MB, Integer.parseInt(value.toString())));
+                    table = new TranspositionTable(megabytes, TranspositionTable.Replacement.AGE_AND_DEPTH);
+                    newSearch();
+                    break;
+                case "threads":
+                    threads = Math.max(1, Math.min(MAX_THREADS, Integer.parseInt(value.toString())));
+                    newSearch();
+                    break;
+                case "tablebasepath":
+                    String dir = value.toString();
+                    tablebase = dir.isEmpty() || dir.equals("<empty>") ? null : new Tablebase(Paths.get(dir));
+                    search.setTablebase(tablebase);
+                    break;
+                default:
+                    break;
+            }
+        } catch (NumberFormatException | IOException exc) {
+            send("info string bad value for " + name + ": " + exc.getMessage());
+        }
+    }
+
+    //
+    // Sets the position from "position startpos|fen <fen> [moves ...]"
+    //
+    private void setPosition(String[] words) {
+        int i = 1;
+        try {
+            if (i < words.length && words[i].equals("startpos")) {
+                Fen.parse(Fen.START, replay);
+                i++;
+            } else if (i < words.length && words[i].equals("fen")) {
+                StringBuilder fen = new StringBuilder();
+                for (i++; i < words.length && !words[i].equals("moves"); i++) {
+                    fen.append(words[i]).append(' ');
+                }
+                Fen.parse(fen, replay);
+            } else {
+                send("info string bad position command");
+                return;
+            }
+        } catch (IllegalArgumentException exc) {
+            send("info string " + exc.getMessage());
+            return;
+        }
+        if (i < words.length && words[i].equals("moves")) {
+            for (i++; i < words.length; i++) {
+                int move = parseMove(replay, words[i]);
+                if (move == Move.NONE) {
+                    send("info string illegal move " + words[i]);
+                    break;
+                }
+                replay.makeMove(move);
+            }
+        }
+        position.copyFrom(replay);
+    }
+
+    //
+    // Finds a legal move written in coordinate notation, or returns
+    // Move.NONE
+    //
+    private static int parseMove(Position position, String text) {
+        if (text.length() < 4 || text.length() > 5) {
+            return Move.NONE;
+        }
+        int from;
+        int to;
+        try {
+            from = Fen.square(text.substring(0, 2));
+            to = Fen.square(text.substring(2, 4));
+        } catch (IllegalArgumentException exc) {
+            return Move.NONE;
+        }
+        int promotion = text.length() == 5 ? " pnbrqk".indexOf(text.charAt(4)) : Piece.QUEEN;
+        if (promotion <= Piece.PAWN) {
+            return Move.NONE;
+        }
+        return position.findMove(from, to, promotion);
+    }
+
+    //
+    // Starts a search from "go" and its limits on the thinking thread
+    //
+    private void go(String[] words) {
+        limits = new SearchLimits();
+        boolean ponder = false;
+        try {
+            for (int i = 1; i < words.length; i++) {
+                String value = i + 1 < words.length ? words[i + 1] : "0";
+                switch (words[i]) {
+                    case "wtime":
+                        limits.setTime(Piece.WHITE, Long.parseLong(value));
+                        i++;
+                        break;
+                    case "btime":
+                        limits.setTime(Piece.BLACK, Long.parseLong(value));
+                        i++;
+                        break;
+                    case "winc":
+                        limits.setIncrement(Piece.WHITE, Long.parseLong(value));
+                        i++;
+                        break;
+                    case "binc":
+                        limits.setIncrement(Piece.BLACK, Long.parseLong(value));
+                        i++;
+                        break;
+                    case "movestogo":
+                        limits.setMovesToGo(Integer.parseInt(value));
+                        i++;
+                        break;
+                    case "movetime":
+                        limits.setMoveTime(Long.parseLong(value));
+                        i++;
+                        break;
+                    case "depth":
+                        limits.setDepth(Integer.parseInt(value));
+                        i++;
+                        break;
+                    case "nodes":
+                        limits.setNodes(Long.parseLong(value));
+                        i++;
+                        break;
+                    case "infinite":
+                        limits.setInfinite(true);
+                        break;
+                    case "ponder":
+                        ponder = true;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (NumberFormatException exc) {
+            send("info string bad go command");
+            return;
+        }
+        // a ponder search has no time limit until the ponderhit
+        SearchLimits run = limits.copy();
+        if (ponder) {
+            run.setInfinite(true);
+        }
+        holding = run.isInfinite();
+        ponderDeadline = NO_DEADLINE;
+        Position snapshot = position.copy();
+        thinker = new Thread(() -> think(snapshot, run), "chess-uci-search");
+        thinker.start();
+    }
+
+    //
+    // Searches on the thinking thread and sends the best move once the
+    // search is over and no longer held
+    //
+    private void think(Position snapshot, SearchLimits run) {
+        SearchResult result = search.search(snapshot, run);
+        synchronized (lock) {
+            while (holding) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException exc) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        int[] pv = result.getPv();
+        send("bestmove " + Move.name(result.getBestMove()) + (pv.length > 1 ? " ponder " + Move.name(pv[1]) : ""));
+    }
+
+    //
+    // The opponent played the expected move, so the ponder search goes
+    // on as a normal search with the time of the side to move
+    //
+    private void ponderhit() {
+        if (thinker == null || limits == null) {
+            return;
+        }
+        boolean infinite = limits.isInfinite();
+        if (!infinite) {
+            long millis = limits.softMillis(position.getSideToMove());
+            ponderDeadline = System.currentTimeMillis() + millis;
+            search.ponderhit(millis);
+        }
+        synchronized (lock) {
+            holding = infinite;
+            lock.notifyAll();
+        }
+    }
+
+    //
+    // Waits for a running search to send its best move. A search held
+    // for "stop" or "ponderhit" could run forever, so it is always
+    // stopped, while a finite search is only stopped when asked.
+    //
+    private void finish(boolean stop) {
+        if (thinker == null) {
+            return;
+        }
+        synchronized (lock) {
+            stop |= holding;
+            holding = false;
+            lock.notifyAll();
+        }
+        // the stop is repeated in case the search had not started yet
+        while (thinker.isAlive()) {
+            if (stop) {
+                search.stop();
+            }
+            try {
+                thinker.join(10);
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        thinker = null;
+    }
+
+    //
+    // Builds the search for the current table and number of threads
+    //
+    private void newSearch() {
+        if (search != null) {
+            search.shutdown();
+        }
+        search = new ParallelSearch(threads, table);
+        search.setTablebase(tablebase);
+        search.setListener(this::info);
+    }
+
+    //
+    // Sends the info line of a completed iteration, and the time of a
+    // ponderhit the search may have missed
+    //
+    private void info(SearchResult result) {
+        long deadline = ponderDeadline;
+        if (deadline != NO_DEADLINE) {
+            search.ponderhit(Math.max(0, deadline - System.currentTimeMillis()));
+        }
+        StringBuilder line = new StringBuilder("info depth ").append(result.getDepth());
+        int score = result.getScore();
+        if (Math.abs(score) >= Search.MATE - Search.MAX_PLY) {
+            int plies = Search.MATE - Math.abs(score);
+            line.append(" score mate ").append(score > 0 ? (plies + 1) / 2 : -(plies / 2));
+        } else {
+            line.append(" score cp ").append(score);
+        }
+        line.append(" nodes ").append(result.getNodes());
+        line.append(" nps ").append(result.getNodes() * 1000 / Math.max(1, result.getMillis()));
+        line.append(" time ").append(result.getMillis());
+        line.append(" pv");
+        for (int move : result.getPv()) {
+            line.append(' ').append(Move.name(move));
+        }
+        send(line.toString());
+    }
+
+    //
+    // Writes a reply line, flushing so the other side sees it at once
+    //
+    private void send(String line) {
+        synchronized (out) {
+            out.println(line);
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package chess;
+
+/**
+ * Zobrist holds the random keys used to hash a Position. The hash of a
+ * Position is the exclusive or of the key of every piece on its square,
+ * the castling rights, the en passant column and the side to move, so
+ * making a move only has to flip the keys of what changed.
+ *
+ * The keys come from a fixed seed so hashes stay the same from one run
+ * to the next and can be stored in files such as an opening book.
+ *
+ * @author Matthew Shew
+ * @version 1.0
+ */
+public final class Zobrist {
+    /**
+     * Key of each piece code on each square, 0 for an empty square.
+     */
+    static final long[][] PIECE = new long[16][Position.SQUARES];
+    /**
+     * Key of each combination of castling rights.
+     */
+    static final long[] CASTLING = new long[16];
+    /**
+     * Key of each column an en passant capture can happen on.
+     */
+    static final long[] EP_COLUMN = new long[8];
+    /**
+     * Key flipped when black is to move.
+     */
+    static final long SIDE;
+    private static long seed = 0x2545F4914F6CDD1DL;
+
+    static {
+        for (int piece = 1; piece < 16; piece++) {
+            for (int sq = 0; sq < Position.SQUARES; sq++) {
+                PIECE[piece][sq] = next();
+            }
+        }
+        for (int i = 0; i < 16; i++) {
+            CASTLING[i] = next();
+        }
+        for (int i = 0; i < 8; i++) {
+            EP_COLUMN[i] = next();
+        }
+        SIDE = next();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Computes the hash of a Position from scratch. The Position keeps
+     * its hash up to date on its own, this is used by Perft to verify
+     * it.
+     *
+     * @param position the Position to hash
+     * @return the hash
+     */
+    public static long hash(Position position) {
+        long hash = CASTLING[position.getCastling()];
+        for (int sq = 0; sq < Position.SQUARES; sq++) {
+            hash ^= PIECE[position.getPiece(sq)][sq];
+        }
+        if (position.getEpSquare() != Position.NO_SQUARE) {
+            hash ^= EP_COLUMN[position.getEpSquare() & 7];
+        }
+        if (position.getSideToMove() == Piece.BLACK) {
+            hash ^= SIDE;
+        }
+        return hash;
+    }
+
+    //
+    // Next number of a splitmix64 sequence
+    //
+    private static long next() {
+        seed += 0x9E3779B97F4A7C15L;
+        long z = seed;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}